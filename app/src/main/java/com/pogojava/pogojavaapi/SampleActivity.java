@@ -25,6 +25,7 @@ import com.pogojava.pogojavaapi.pokegoapi.auth.PtcCredentialProvider;
 import com.pogojava.pogojavaapi.pokegoapi.exceptions.LoginFailedException;
 import com.pogojava.pogojavaapi.pokegoapi.exceptions.RemoteServerException;
 import com.pogojava.pogojavaapi.pokegoapi.main.OnCheckChallengeRequestListener;
+import com.pogojava.pogojavaapi.pokegoapi.util.HttpClientFactory;
 import com.pogojava.pogojavaapi.pokegoapi.util.PokeCallback;
 
 import java.util.Random;
@@ -56,7 +57,7 @@ public class SampleActivity extends AppCompatActivity {
     private final Thread requestThred = new Thread(new Runnable() {
         @Override
         public void run() {
-            OkHttpClient client = new OkHttpClient();
+            OkHttpClient client = HttpClientFactory.getDefault().getClient();
             PtcCredentialProvider ptcCredentialProvider;
 
             try {
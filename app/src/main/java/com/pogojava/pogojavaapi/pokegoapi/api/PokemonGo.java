@@ -30,9 +30,11 @@ import com.pogojava.pogojavaapi.pokegoapi.exceptions.LoginFailedException;
 import com.pogojava.pogojavaapi.pokegoapi.exceptions.RemoteServerException;
 import com.pogojava.pogojavaapi.pokegoapi.main.AsyncServerRequest;
 import com.pogojava.pogojavaapi.pokegoapi.main.CommonRequest;
+import com.pogojava.pogojavaapi.pokegoapi.main.CommonRequestScheduler;
 import com.pogojava.pogojavaapi.pokegoapi.main.OnCheckChallengeRequestListener;
 import com.pogojava.pogojavaapi.pokegoapi.main.RequestHandler;
 import com.pogojava.pogojavaapi.pokegoapi.util.ClientInterceptor;
+import com.pogojava.pogojavaapi.pokegoapi.util.HttpClientFactory;
 import com.pogojava.pogojavaapi.pokegoapi.util.PokeCallback;
 import com.pogojava.pogojavaapi.pokegoapi.util.SystemTimeImpl;
 import com.pogojava.pogojavaapi.pokegoapi.util.Time;
@@ -50,6 +52,7 @@ public class PokemonGo {
 	private long mStartTime;
 	private final byte[] mSessionHash;
 	RequestHandler mRequestHandler;
+	private final CommonRequestScheduler mCommonRequestScheduler;
 	private PlayerProfile mPlayerProfile;
 	private Inventories mInventories;
 	private double mLatitude;
@@ -80,9 +83,10 @@ public class PokemonGo {
 		this.mSeed = seed;
 		mSessionHash = new byte[16];
 		new Random().nextBytes(mSessionHash);
-		client = client.newBuilder()
+		client = HttpClientFactory.getDefault().share(client).newBuilder()
 				.addNetworkInterceptor(new ClientInterceptor())
 				.build();
+		mCommonRequestScheduler = new CommonRequestScheduler(this);
 		mRequestHandler = new RequestHandler(this, client);
 		mMap = new Map(this);
 		mLongitude = longitude;
@@ -186,6 +190,10 @@ public class PokemonGo {
 		return mCredentialProvider.getAuthInfo();
 	}
 
+	public CredentialProvider getCredentialProvider() {
+		return mCredentialProvider;
+	}
+
 	/**
 	 * Sets location.
 	 *
@@ -351,4 +359,8 @@ public class PokemonGo {
 	public RequestHandler getRequestHandler() {
 		return mRequestHandler;
 	}
+
+	public CommonRequestScheduler getCommonRequestScheduler() {
+		return mCommonRequestScheduler;
+	}
 }
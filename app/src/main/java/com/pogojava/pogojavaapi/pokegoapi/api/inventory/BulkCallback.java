@@ -0,0 +1,51 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.api.inventory;
+
+import com.pogojava.pogojavaapi.pokegoapi.api.pokemon.Pokemon;
+import com.pogojava.pogojavaapi.pokegoapi.util.PokeCallback;
+
+/**
+ * The callback of a bulk operation, told about every pokemon as its response comes and fired once with the
+ * results of all of them. Cancelling it drops the requests which were not sent yet.
+ *
+ * @param <R> the result of the operation for one pokemon
+ */
+public abstract class BulkCallback<R> extends PokeCallback<BulkResult<R>> {
+
+	/**
+	 * Called when the operation succeeded on a pokemon, or the server refused it with a result.
+	 *
+	 * @param pokemon the pokemon
+	 * @param result  the result for the pokemon
+	 * @param done    the number of pokemon done so far
+	 * @param total   the number of pokemon of the operation
+	 */
+	public void onPokemonResult(Pokemon pokemon, R result, int done, int total) {
+	}
+
+	/**
+	 * Called when the request of a pokemon failed.
+	 *
+	 * @param pokemon the pokemon
+	 * @param error   the error
+	 * @param done    the number of pokemon done so far
+	 * @param total   the number of pokemon of the operation
+	 */
+	public void onPokemonError(Pokemon pokemon, Throwable error, int done, int total) {
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.api.inventory;
+
+import com.google.protobuf.GeneratedMessage;
+import com.pogojava.pogojavaapi.pokegoapi.api.PokemonGo;
+import com.pogojava.pogojavaapi.pokegoapi.api.pokemon.Pokemon;
+import com.pogojava.pogojavaapi.pokegoapi.main.AsyncServerRequest;
+import com.pogojava.pogojavaapi.pokegoapi.main.InternalServerRequest;
+import com.pogojava.pogojavaapi.pokegoapi.main.RequestPriority;
+import com.pogojava.pogojavaapi.pokegoapi.util.PokeAFunc;
+import com.pogojava.pogojavaapi.pokegoapi.util.PokeCallback;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
+
+/**
+ * Sends the request of an operation for each pokemon of a selection, in the bulk lane of the request queue.
+ * Only the last request carries the common requests, the inventory is refreshed once the whole selection
+ * went through instead of after every pokemon. If the operation is cancelled or its last request fails,
+ * the inventory is refreshed with the next request instead.
+ *
+ * @param <T> the response of the request
+ * @param <R> the result of the operation for one pokemon
+ */
+abstract class BulkOperation<T extends GeneratedMessage, R> {
+	private final PokemonGo api;
+	private final RequestType type;
+	private final AtomicBoolean inventoryInvalidated = new AtomicBoolean();
+
+	BulkOperation(PokemonGo api, RequestType type) {
+		this.api = api;
+		this.type = type;
+	}
+
+	/**
+	 * Creates the request message for a pokemon
+	 */
+	abstract GeneratedMessage createMessage(Pokemon pokemon);
+
+	/**
+	 * Applies the response for a pokemon to the inventories and returns its result
+	 */
+	abstract R exec(Pokemon pokemon, T response);
+
+	/**
+	 * Queues the requests of the selection, each pokemon only once
+	 *
+	 * @param selection the pokemon
+	 * @param callback  the callback of the whole operation
+	 * @return callback passed as argument
+	 */
+	BulkCallback<R> start(Collection<Pokemon> selection, final BulkCallback<R> callback) {
+		LinkedHashMap<Long, Pokemon> targets = new LinkedHashMap<>();
+		for (Pokemon pokemon : selection) {
+			targets.put(pokemon.getId(), pokemon);
+		}
+		final int total = targets.size();
+		final BulkResult<R> result = new BulkResult<>(total);
+		if (total == 0) {
+			callback.fire(result);
+			return callback;
+		}
+
+		int queued = 0;
+		for (final Pokemon target : targets.values()) {
+			final boolean last = ++queued == total;
+			PokeAFunc<T, R> func = new PokeAFunc<T, R>() {
+				@Override
+				public R exec(T response) {
+					return BulkOperation.this.exec(target, response);
+				}
+			};
+			PokeCallback<R> pokemonCallback = new PokeCallback<R>() {
+				@Override
+				public void onResponse(R response) {
+					int done = result.addResult(target.getId(), response);
+					callback.onPokemonResult(target, response, done, total);
+					if (done == total) {
+						callback.fire(result);
+					}
+				}
+
+				@Override
+				public void onError(Throwable error) {
+					if (last) {
+						invalidateInventory();
+					}
+					int done = result.addError(target.getId(), error);
+					callback.onPokemonError(target, error, done, total);
+					if (done == total) {
+						callback.fire(result);
+					}
+				}
+
+				@Override
+				public boolean isCancelled() {
+					if (callback.isCancelled()) {
+						invalidateInventory();
+						return true;
+					}
+					return super.isCancelled();
+				}
+			};
+			send(createMessage(target), func, pokemonCallback, last);
+		}
+		return callback;
+	}
+
+	/**
+	 * Queues the request of one pokemon, only the last one carries the common requests
+	 *
+	 * @param message  the request message
+	 * @param func     applies the response
+	 * @param callback the callback of the pokemon
+	 * @param last     true for the last request of the operation
+	 */
+	void send(GeneratedMessage message, PokeAFunc<T, R> func, PokeCallback<R> callback, boolean last) {
+		if (last) {
+			new AsyncServerRequest<>(type, message, func, callback, api, RequestPriority.BULK);
+		} else {
+			new AsyncServerRequest<>(type, message, func, callback, api, RequestPriority.BULK,
+					(InternalServerRequest[]) null);
+		}
+	}
+
+	/**
+	 * Makes the next request refresh the inventory, when the last request of the operation will not do it
+	 */
+	private void invalidateInventory() {
+		if (api != null && inventoryInvalidated.compareAndSet(false, true)) {
+			api.getCommonRequestScheduler().invalidate(RequestType.GET_INVENTORY);
+		}
+	}
+}
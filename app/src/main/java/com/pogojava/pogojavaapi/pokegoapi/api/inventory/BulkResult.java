@@ -0,0 +1,82 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.api.inventory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The results of a bulk operation, by pokemon id.
+ *
+ * @param <R> the result of the operation for one pokemon
+ */
+public class BulkResult<R> {
+	private final int total;
+	private final Map<Long, R> results = new LinkedHashMap<>();
+	private final Map<Long, Throwable> errors = new LinkedHashMap<>();
+
+	BulkResult(int total) {
+		this.total = total;
+	}
+
+	synchronized int addResult(long id, R result) {
+		results.put(id, result);
+		return results.size() + errors.size();
+	}
+
+	synchronized int addError(long id, Throwable error) {
+		errors.put(id, error);
+		return results.size() + errors.size();
+	}
+
+	/**
+	 * @return the number of pokemon of the operation
+	 */
+	public int getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return the results of the pokemon the server answered for, in the order of the answers
+	 */
+	public synchronized Map<Long, R> getResults() {
+		return Collections.unmodifiableMap(new LinkedHashMap<>(results));
+	}
+
+	/**
+	 * @return the errors of the pokemon whose request failed
+	 */
+	public synchronized Map<Long, Throwable> getErrors() {
+		return Collections.unmodifiableMap(new LinkedHashMap<>(errors));
+	}
+
+	/**
+	 * Gets the result for a pokemon.
+	 *
+	 * @param id the id of the pokemon
+	 * @return the result, null if its request failed or was not answered
+	 */
+	public synchronized R getResult(long id) {
+		return results.get(id);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "BulkResult{total=" + total + ", results=" + results.size() + ", errors=" + errors.size() + "}";
+	}
+}
@@ -17,14 +17,16 @@ package com.pogojava.pogojavaapi.pokegoapi.api.inventory;
 
 import com.pogojava.pogojavaapi.pokegoapi.api.PokemonGo;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import POGOProtos.Enums.PokemonFamilyIdOuterClass.PokemonFamilyId;
 
+/**
+ * The candies of the player, counted by family ordinal.
+ */
 public class CandyJar {
 	private final PokemonGo api;
-	private final ConcurrentMap<PokemonFamilyId, Integer> candies = new ConcurrentHashMap<>();
+	private final AtomicIntegerArray candies = new AtomicIntegerArray(PokemonFamilyId.values().length);
 
 	public CandyJar(PokemonGo api) {
 		this.api = api;
@@ -38,7 +40,7 @@ public class CandyJar {
 	 * @param candies Amount to set it to
 	 */
 	public void setCandy(PokemonFamilyId family, int candies) {
-		this.candies.put(family, candies);
+		this.candies.set(family.ordinal(), candies);
 	}
 
 
@@ -47,11 +49,16 @@ public class CandyJar {
 	 *
 	 * @param family Pokemon family id
 	 * @param amount Amount of candies to remove
+	 * @return the candies left, never less than 0
 	 */
-	public void removeCandy(PokemonFamilyId family, int amount) {
-		Integer current = candies.putIfAbsent(family, amount);
-		if (current != null) {
-			current = Math.max(current - amount, 0);
+	public int removeCandy(PokemonFamilyId family, int amount) {
+		int index = family.ordinal();
+		while (true) {
+			int current = candies.get(index);
+			int next = Math.max(current - amount, 0);
+			if (candies.compareAndSet(index, current, next)) {
+				return next;
+			}
 		}
 	}
 
@@ -62,11 +69,6 @@ public class CandyJar {
 	 * @return number of candies in jar
 	 */
 	public int getCandies(PokemonFamilyId family) {
-		Integer val = candies.putIfAbsent(family, 0);
-
-		if (val == null)
-			val = 0;
-
-		return val;
+		return candies.get(family.ordinal());
 	}
 }
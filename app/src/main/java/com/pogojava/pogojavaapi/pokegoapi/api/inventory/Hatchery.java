@@ -18,6 +18,9 @@ package com.pogojava.pogojavaapi.pokegoapi.api.inventory;
 import com.pogojava.pogojavaapi.pokegoapi.api.PokemonGo;
 import com.pogojava.pogojavaapi.pokegoapi.api.pokemon.EggPokemon;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -43,4 +46,25 @@ public class Hatchery {
 			current.setProto(egg);
 		}
 	}
+
+	/**
+	 * Removes an egg, once it hatched.
+	 *
+	 * @param id the id of the egg
+	 * @return true if the egg was in the hatchery
+	 */
+	public boolean removeEgg(long id) {
+		return eggs.remove(id) != null;
+	}
+
+	public EggPokemon getEgg(long id) {
+		return eggs.get(id);
+	}
+
+	/**
+	 * @return the eggs of the player
+	 */
+	public List<EggPokemon> getEggs() {
+		return Collections.unmodifiableList(new ArrayList<>(eggs.values()));
+	}
 }
@@ -15,20 +15,32 @@
 
 package com.pogojava.pogojavaapi.pokegoapi.api.inventory;
 
+import android.util.Log;
+
 import com.pogojava.pogojavaapi.pokegoapi.api.PokemonGo;
+import com.pogojava.pogojavaapi.pokegoapi.api.inventory.InventoryEvent.Type;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-import POGOProtos.Enums.PokemonFamilyIdOuterClass;
+import POGOProtos.Data.PokemonDataOuterClass.PokemonData;
+import POGOProtos.Enums.PokemonFamilyIdOuterClass.PokemonFamilyId;
 import POGOProtos.Enums.PokemonIdOuterClass.PokemonId;
 import POGOProtos.Inventory.EggIncubatorOuterClass;
-import POGOProtos.Inventory.InventoryItemDataOuterClass;
-import POGOProtos.Inventory.InventoryItemOuterClass;
+import POGOProtos.Inventory.InventoryItemDataOuterClass.InventoryItemData;
+import POGOProtos.Inventory.InventoryItemOuterClass.InventoryItem;
 import POGOProtos.Inventory.Item.ItemIdOuterClass.ItemId;
 import POGOProtos.Networking.Responses.GetInventoryResponseOuterClass.GetInventoryResponse;
 
 public class Inventories {
+	private static final String TAG = Inventories.class.getSimpleName();
 
 	private final PokemonGo api;
 	private ItemBag itemBag;
@@ -38,6 +50,8 @@ public class Inventories {
 	private final ConcurrentMap<String, EggIncubator> incubators = new ConcurrentHashMap<>();
 	private Hatchery hatchery;
 	private long lastInventoryUpdate = 0;
+	private final List<Subscription> listeners = new CopyOnWriteArrayList<>();
+	private final Object dispatchLock = new Object();
 
 	/**
 	 * Creates Inventories and initializes content.
@@ -47,69 +61,196 @@ public class Inventories {
 	public Inventories(PokemonGo api) {
 		this.api = api;
 		itemBag = new ItemBag(api);
-		pokebank = new PokeBank();
+		pokebank = new PokeBank(api);
 		candyjar = new CandyJar(api);
 		pokedex = new Pokedex();
 		hatchery = new Hatchery(api);
 	}
 
 	/**
-	 * Updates the inventories with the latest data.
+	 * Updates the inventories with the latest data. Each item of the delta is applied by the one field it
+	 * carries, deleted items are removed from the bank or the hatchery, and incubators missing from a new
+	 * incubator list are dropped. Once applied, the changes are sent to the listeners on the calling thread,
+	 * before the next response is applied. A delta older than the last one applied is ignored: envelopes in
+	 * flight together may complete out of order.
 	 *
 	 * @param response the get inventory response
+	 * @return what the response changed
 	 */
-	public void updateInventories(GetInventoryResponse response) {
-		for (InventoryItemOuterClass.InventoryItem inventoryItem
-				: response.getInventoryDelta().getInventoryItemsList()) {
-			InventoryItemDataOuterClass.InventoryItemData itemData = inventoryItem.getInventoryItemData();
-
-			// hatchery
-			if (itemData.getPokemonData().getPokemonId() == PokemonId.MISSINGNO && itemData.getPokemonData().getIsEgg()) {
-				hatchery.addEgg(itemData.getPokemonData());
+	public InventoryChanges updateInventories(GetInventoryResponse response) {
+		// responses are applied on several threads, their events must not overtake each other
+		synchronized (dispatchLock) {
+			if (isOutdated(response)) {
+				return new InventoryChanges();
 			}
-
-			// pokebank
-			if (itemData.getPokemonData().getPokemonId() != PokemonId.MISSINGNO) {
-				pokebank.addPokemon(api, inventoryItem.getInventoryItemData().getPokemonData());
+			List<InventoryEvent> events = listeners.isEmpty() ? null : new ArrayList<InventoryEvent>();
+			InventoryChanges changes = applyInventories(response, events);
+			if (events != null) {
+				dispatch(events);
 			}
+			return changes;
+		}
+	}
 
-			// items
-			if (itemData.getItem().getItemId() != ItemId.UNRECOGNIZED
-					&& itemData.getItem().getItemId() != ItemId.ITEM_UNKNOWN) {
-				itemBag.addItem(itemData.getItem());
-			}
+	/**
+	 * Checks whether a response carries a delta older than the last one applied, which would restore the
+	 * deleted items and the previous counts
+	 */
+	private synchronized boolean isOutdated(GetInventoryResponse response) {
+		long timestamp = response.getInventoryDelta().getNewTimestampMs();
+		return timestamp > 0 && timestamp < lastInventoryUpdate;
+	}
 
-			// candyjar
-			if (itemData.getCandy().getFamilyId() != PokemonFamilyIdOuterClass.PokemonFamilyId.UNRECOGNIZED
-					&& itemData.getCandy().getFamilyId() != PokemonFamilyIdOuterClass.PokemonFamilyId.FAMILY_UNSET) {
-				candyjar.setCandy(
-						itemData.getCandy().getFamilyId(),
-						itemData.getCandy().getCandy()
-				);
+	/**
+	 * Applies an inventory response, collecting its events if the list is not null
+	 */
+	private synchronized InventoryChanges applyInventories(GetInventoryResponse response,
+			List<InventoryEvent> events) {
+		InventoryChanges changes = new InventoryChanges();
+		for (InventoryItem inventoryItem : response.getInventoryDelta().getInventoryItemsList()) {
+			if (inventoryItem.hasDeletedItem()) {
+				long id = inventoryItem.getDeletedItem().getPokemonId();
+				if (pokebank.removePokemon(id)) {
+					changes.pokemonRemoved(id);
+					addEvent(events, InventoryEvent.removed(Type.POKEMON_REMOVED, id));
+				}
+				if (hatchery.removeEgg(id)) {
+					changes.eggRemoved(id);
+					addEvent(events, InventoryEvent.removed(Type.EGG_HATCHED, id));
+				}
+				continue;
 			}
 
-			// player stats
-			if (itemData.hasPlayerStats()) {
+			InventoryItemData itemData = inventoryItem.getInventoryItemData();
+			if (itemData.hasPokemonData()) {
+				PokemonData pokemonData = itemData.getPokemonData();
+				if (pokemonData.getIsEgg()) {
+					hatchery.addEgg(pokemonData);
+					changes.eggUpdated(pokemonData.getId());
+					if (events != null) {
+						events.add(InventoryEvent.egg(hatchery.getEgg(pokemonData.getId())));
+					}
+				} else if (pokemonData.getPokemonId() != PokemonId.MISSINGNO) {
+					boolean added = pokebank.addPokemon(api, pokemonData);
+					changes.pokemonUpdated(pokemonData.getId());
+					if (events != null) {
+						events.add(InventoryEvent.pokemon(added ? Type.POKEMON_ADDED : Type.POKEMON_UPDATED,
+								pokebank.getPokemonById(pokemonData.getId())));
+					}
+				}
+			} else if (itemData.hasItem()) {
+				ItemId itemId = itemData.getItem().getItemId();
+				if (itemId != ItemId.UNRECOGNIZED && itemId != ItemId.ITEM_UNKNOWN) {
+					itemBag.addItem(itemData.getItem());
+					changes.itemChanged(itemId);
+					addEvent(events, InventoryEvent.item(itemId, itemData.getItem().getCount()));
+				}
+			} else if (itemData.hasCandy()) {
+				PokemonFamilyId family = itemData.getCandy().getFamilyId();
+				if (family != PokemonFamilyId.UNRECOGNIZED && family != PokemonFamilyId.FAMILY_UNSET) {
+					candyjar.setCandy(family, itemData.getCandy().getCandy());
+					changes.candyChanged(family);
+					addEvent(events, InventoryEvent.candy(family, itemData.getCandy().getCandy()));
+				}
+			} else if (itemData.hasPlayerStats()) {
 				api.getPlayerProfile().setStats(new Stats(itemData.getPlayerStats()));
+				changes.statsChanged();
+				addEvent(events, InventoryEvent.of(Type.STATS_UPDATED));
+			} else if (itemData.hasPokedexEntry()) {
+				pokedex.add(itemData.getPokedexEntry());
+				changes.pokedexChanged();
+				addEvent(events, InventoryEvent.of(Type.POKEDEX_UPDATED));
+			} else if (itemData.hasEggIncubators()) {
+				updateIncubators(itemData.getEggIncubators().getEggIncubatorList(), changes, events);
 			}
+		}
 
-			// pokedex
-			if (itemData.hasPokedexEntry()) {
-				pokedex.add(itemData.getPokedexEntry());
+		if (response.hasInventoryDelta()
+				&& response.getInventoryDelta().getNewTimestampMs() > 0) {
+			lastInventoryUpdate = response.getInventoryDelta().getNewTimestampMs();
+			changes.setTimestamp(lastInventoryUpdate);
+		}
+		return changes;
+	}
+
+	/**
+	 * Applies the full list of incubators, incubators missing from it were used up
+	 */
+	private void updateIncubators(List<EggIncubatorOuterClass.EggIncubator> list, InventoryChanges changes,
+			List<InventoryEvent> events) {
+		Set<String> ids = new HashSet<>();
+		for (EggIncubatorOuterClass.EggIncubator incubator : list) {
+			ids.add(incubator.getId());
+			EggIncubator current = incubators.putIfAbsent(incubator.getId(), new EggIncubator(api, incubator));
+			if (current != null) {
+				current.setProto(incubator);
+			}
+			changes.incubatorUpdated(incubator.getId());
+			if (events != null) {
+				events.add(InventoryEvent.incubator(incubators.get(incubator.getId())));
 			}
+		}
+		for (Iterator<String> iterator = incubators.keySet().iterator(); iterator.hasNext(); ) {
+			String id = iterator.next();
+			if (!ids.contains(id)) {
+				iterator.remove();
+				changes.incubatorRemoved(id);
+				addEvent(events, InventoryEvent.incubatorRemoved(id));
+			}
+		}
+	}
+
+	private static void addEvent(List<InventoryEvent> events, InventoryEvent event) {
+		if (events != null) {
+			events.add(event);
+		}
+	}
 
-			if (itemData.hasEggIncubators()) {
-				for (EggIncubatorOuterClass.EggIncubator incubator : itemData.getEggIncubators().getEggIncubatorList()) {
-					EggIncubator current = incubators.putIfAbsent(incubator.getId(), new EggIncubator(api, incubator));
-					if (current != null)
-						current.setProto(incubator);
+	/**
+	 * Sends the events of one response to the listeners registered for their type
+	 */
+	private void dispatch(List<InventoryEvent> events) {
+		for (InventoryEvent event : events) {
+			for (Subscription subscription : listeners) {
+				if (!subscription.types.contains(event.getType())) {
+					continue;
+				}
+				try {
+					subscription.listener.onInventoryEvent(event);
+				} catch (RuntimeException e) {
+					Log.w(TAG, "Inventory listener failed on " + event, e);
 				}
 			}
 		}
+	}
 
-		if (response.hasInventoryDelta()
-				&& response.getInventoryDelta().getNewTimestampMs() > 0) {
-			lastInventoryUpdate = response.getInventoryDelta().getNewTimestampMs();
+	/**
+	 * Registers a listener for the changes applied by the next inventory responses.
+	 *
+	 * @param listener the listener
+	 * @param types the types of events to receive, all of them if none is given
+	 */
+	public void addListener(InventoryListener listener, Type... types) {
+		EnumSet<Type> filter = EnumSet.allOf(Type.class);
+		if (types.length > 0) {
+			filter = EnumSet.noneOf(Type.class);
+			for (Type type : types) {
+				filter.add(type);
+			}
+		}
+		listeners.add(new Subscription(listener, filter));
+	}
+
+	/**
+	 * Unregisters a listener, for all the types it was registered for.
+	 *
+	 * @param listener the listener
+	 */
+	public void removeListener(InventoryListener listener) {
+		for (Subscription subscription : listeners) {
+			if (subscription.listener == listener) {
+				listeners.remove(subscription);
+			}
 		}
 	}
 
@@ -117,6 +258,14 @@ public class Inventories {
 		return itemBag;
 	}
 
+	public PokeBank getPokebank() {
+		return pokebank;
+	}
+
+	public Hatchery getHatchery() {
+		return hatchery;
+	}
+
 	public CandyJar getCandyjar() {
 		return candyjar;
 	}
@@ -128,4 +277,14 @@ public class Inventories {
 	public long getLastInventoryUpdate() {
 		return lastInventoryUpdate;
 	}
+
+	private static class Subscription {
+		private final InventoryListener listener;
+		private final Set<Type> types;
+
+		private Subscription(InventoryListener listener, Set<Type> types) {
+			this.listener = listener;
+			this.types = types;
+		}
+	}
 }
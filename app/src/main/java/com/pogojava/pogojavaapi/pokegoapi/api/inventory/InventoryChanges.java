@@ -0,0 +1,172 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.api.inventory;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import POGOProtos.Enums.PokemonFamilyIdOuterClass.PokemonFamilyId;
+import POGOProtos.Inventory.Item.ItemIdOuterClass.ItemId;
+
+/**
+ * What an inventory update changed, by key. The new values are read from the inventories themselves.
+ */
+public class InventoryChanges {
+	private final Set<Long> updatedPokemon = new LinkedHashSet<>();
+	private final Set<Long> removedPokemon = new LinkedHashSet<>();
+	private final Set<Long> updatedEggs = new LinkedHashSet<>();
+	private final Set<Long> removedEggs = new LinkedHashSet<>();
+	private final Set<String> updatedIncubators = new LinkedHashSet<>();
+	private final Set<String> removedIncubators = new LinkedHashSet<>();
+	private final EnumSet<ItemId> items = EnumSet.noneOf(ItemId.class);
+	private final EnumSet<PokemonFamilyId> candies = EnumSet.noneOf(PokemonFamilyId.class);
+	private boolean stats;
+	private boolean pokedex;
+	private long timestamp;
+
+	/**
+	 * @return the ids of the pokemon added or changed
+	 */
+	public Set<Long> getUpdatedPokemon() {
+		return Collections.unmodifiableSet(updatedPokemon);
+	}
+
+	/**
+	 * @return the ids of the pokemon removed, after a transfer or an evolution
+	 */
+	public Set<Long> getRemovedPokemon() {
+		return Collections.unmodifiableSet(removedPokemon);
+	}
+
+	public Set<Long> getUpdatedEggs() {
+		return Collections.unmodifiableSet(updatedEggs);
+	}
+
+	/**
+	 * @return the ids of the eggs removed, after they hatched
+	 */
+	public Set<Long> getRemovedEggs() {
+		return Collections.unmodifiableSet(removedEggs);
+	}
+
+	public Set<String> getUpdatedIncubators() {
+		return Collections.unmodifiableSet(updatedIncubators);
+	}
+
+	/**
+	 * @return the ids of the incubators removed, once they had no use left
+	 */
+	public Set<String> getRemovedIncubators() {
+		return Collections.unmodifiableSet(removedIncubators);
+	}
+
+	/**
+	 * @return the items whose count changed
+	 */
+	public Set<ItemId> getItems() {
+		return Collections.unmodifiableSet(items);
+	}
+
+	/**
+	 * @return the families whose candy count changed
+	 */
+	public Set<PokemonFamilyId> getCandies() {
+		return Collections.unmodifiableSet(candies);
+	}
+
+	public boolean isStatsChanged() {
+		return stats;
+	}
+
+	public boolean isPokedexChanged() {
+		return pokedex;
+	}
+
+	/**
+	 * @return the timestamp of the inventory after the update, 0 if the server did not send one
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return true if the update did not change anything
+	 */
+	public boolean isEmpty() {
+		return updatedPokemon.isEmpty() && removedPokemon.isEmpty()
+				&& updatedEggs.isEmpty() && removedEggs.isEmpty()
+				&& updatedIncubators.isEmpty() && removedIncubators.isEmpty()
+				&& items.isEmpty() && candies.isEmpty() && !stats && !pokedex;
+	}
+
+	void pokemonUpdated(long id) {
+		updatedPokemon.add(id);
+	}
+
+	void pokemonRemoved(long id) {
+		updatedPokemon.remove(id);
+		removedPokemon.add(id);
+	}
+
+	void eggUpdated(long id) {
+		updatedEggs.add(id);
+	}
+
+	void eggRemoved(long id) {
+		updatedEggs.remove(id);
+		removedEggs.add(id);
+	}
+
+	void incubatorUpdated(String id) {
+		updatedIncubators.add(id);
+	}
+
+	void incubatorRemoved(String id) {
+		removedIncubators.add(id);
+	}
+
+	void itemChanged(ItemId id) {
+		items.add(id);
+	}
+
+	void candyChanged(PokemonFamilyId family) {
+		candies.add(family);
+	}
+
+	void statsChanged() {
+		stats = true;
+	}
+
+	void pokedexChanged() {
+		pokedex = true;
+	}
+
+	void setTimestamp(long timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	@Override
+	public String toString() {
+		return "InventoryChanges{pokemon=+" + updatedPokemon.size() + "/-" + removedPokemon.size()
+				+ ", eggs=+" + updatedEggs.size() + "/-" + removedEggs.size()
+				+ ", incubators=+" + updatedIncubators.size() + "/-" + removedIncubators.size()
+				+ ", items=" + items + ", candies=" + candies
+				+ ", stats=" + stats + ", pokedex=" + pokedex + "}";
+	}
+}
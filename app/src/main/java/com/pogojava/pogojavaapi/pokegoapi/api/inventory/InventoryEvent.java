@@ -0,0 +1,200 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.api.inventory;
+
+import com.pogojava.pogojavaapi.pokegoapi.api.pokemon.EggPokemon;
+import com.pogojava.pogojavaapi.pokegoapi.api.pokemon.Pokemon;
+
+import POGOProtos.Enums.PokemonFamilyIdOuterClass.PokemonFamilyId;
+import POGOProtos.Inventory.Item.ItemIdOuterClass.ItemId;
+
+/**
+ * A change of the inventory, as applied from an inventory response. Only the fields of the event type are set.
+ */
+public class InventoryEvent {
+	public enum Type {
+		/**
+		 * {@link #getItemId()} has now {@link #getCount()} items
+		 */
+		ITEM_CHANGED,
+		/**
+		 * {@link #getPokemon()} was caught, hatched or evolved into
+		 */
+		POKEMON_ADDED,
+		/**
+		 * {@link #getPokemon()} changed, like after a power up
+		 */
+		POKEMON_UPDATED,
+		/**
+		 * The pokemon {@link #getId()} was transferred or evolved
+		 */
+		POKEMON_REMOVED,
+		/**
+		 * {@link #getFamily()} has now {@link #getCount()} candies
+		 */
+		CANDY_CHANGED,
+		/**
+		 * {@link #getEgg()} was added or its progress changed
+		 */
+		EGG_UPDATED,
+		/**
+		 * The egg {@link #getId()} hatched
+		 */
+		EGG_HATCHED,
+		/**
+		 * {@link #getIncubator()} was added or changed
+		 */
+		INCUBATOR_UPDATED,
+		/**
+		 * The incubator {@link #getIncubatorId()} has no use left
+		 */
+		INCUBATOR_REMOVED,
+		/**
+		 * The player stats changed
+		 */
+		STATS_UPDATED,
+		/**
+		 * A pokedex entry changed
+		 */
+		POKEDEX_UPDATED
+	}
+
+	private final Type type;
+	private long id;
+	private String incubatorId;
+	private ItemId itemId;
+	private PokemonFamilyId family;
+	private int count;
+	private Pokemon pokemon;
+	private EggPokemon egg;
+	private EggIncubator incubator;
+
+	private InventoryEvent(Type type) {
+		this.type = type;
+	}
+
+	static InventoryEvent item(ItemId itemId, int count) {
+		InventoryEvent event = new InventoryEvent(Type.ITEM_CHANGED);
+		event.itemId = itemId;
+		event.count = count;
+		return event;
+	}
+
+	static InventoryEvent pokemon(Type type, Pokemon pokemon) {
+		InventoryEvent event = new InventoryEvent(type);
+		event.id = pokemon.getId();
+		event.pokemon = pokemon;
+		return event;
+	}
+
+	static InventoryEvent removed(Type type, long id) {
+		InventoryEvent event = new InventoryEvent(type);
+		event.id = id;
+		return event;
+	}
+
+	static InventoryEvent candy(PokemonFamilyId family, int count) {
+		InventoryEvent event = new InventoryEvent(Type.CANDY_CHANGED);
+		event.family = family;
+		event.count = count;
+		return event;
+	}
+
+	static InventoryEvent egg(EggPokemon egg) {
+		InventoryEvent event = new InventoryEvent(Type.EGG_UPDATED);
+		event.id = egg.getId();
+		event.egg = egg;
+		return event;
+	}
+
+	static InventoryEvent incubator(EggIncubator incubator) {
+		InventoryEvent event = new InventoryEvent(Type.INCUBATOR_UPDATED);
+		event.incubatorId = incubator.getId();
+		event.incubator = incubator;
+		return event;
+	}
+
+	static InventoryEvent incubatorRemoved(String incubatorId) {
+		InventoryEvent event = new InventoryEvent(Type.INCUBATOR_REMOVED);
+		event.incubatorId = incubatorId;
+		return event;
+	}
+
+	static InventoryEvent of(Type type) {
+		return new InventoryEvent(type);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return the id of the pokemon or egg
+	 */
+	public long getId() {
+		return id;
+	}
+
+	public String getIncubatorId() {
+		return incubatorId;
+	}
+
+	public ItemId getItemId() {
+		return itemId;
+	}
+
+	public PokemonFamilyId getFamily() {
+		return family;
+	}
+
+	/**
+	 * @return the new count of items or candies
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	public Pokemon getPokemon() {
+		return pokemon;
+	}
+
+	public EggPokemon getEgg() {
+		return egg;
+	}
+
+	public EggIncubator getIncubator() {
+		return incubator;
+	}
+
+	@Override
+	public String toString() {
+		switch (type) {
+			case ITEM_CHANGED:
+				return type + " " + itemId + "=" + count;
+			case CANDY_CHANGED:
+				return type + " " + family + "=" + count;
+			case INCUBATOR_UPDATED:
+			case INCUBATOR_REMOVED:
+				return type + " " + incubatorId;
+			case STATS_UPDATED:
+			case POKEDEX_UPDATED:
+				return type.toString();
+			default:
+				return type + " " + id;
+		}
+	}
+}
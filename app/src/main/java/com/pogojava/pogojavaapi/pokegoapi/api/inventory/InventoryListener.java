@@ -0,0 +1,31 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.api.inventory;
+
+/**
+ * Receives the changes applied to the inventories, on the thread applying the inventory response.
+ * The next response waits for the listeners, they should hand long work to another thread.
+ */
+public interface InventoryListener {
+
+	/**
+	 * Called for every change of the types the listener was registered for, in the order of the response.
+	 *
+	 * @param event the change
+	 */
+	void onInventoryEvent(InventoryEvent event);
+}
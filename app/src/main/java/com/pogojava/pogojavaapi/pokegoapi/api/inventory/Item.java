@@ -19,14 +19,27 @@ import POGOProtos.Inventory.Item.ItemDataOuterClass;
 import POGOProtos.Inventory.Item.ItemIdOuterClass.ItemId;
 
 public class Item {
-	private ItemDataOuterClass.ItemData proto;
+	private final ItemBag bag;
+	private volatile ItemDataOuterClass.ItemData proto;
 	private int count;
 
 	public Item(ItemDataOuterClass.ItemData proto) {
+		this.bag = null;
 		this.proto = proto;
 		this.count = proto.getCount();
 	}
 
+	/**
+	 * Creates the item of a bag, its count is the one kept by the bag.
+	 *
+	 * @param bag the bag holding the count
+	 * @param proto the item data
+	 */
+	Item(ItemBag bag, ItemDataOuterClass.ItemData proto) {
+		this.bag = bag;
+		this.proto = proto;
+	}
+
 	public ItemId getItemId() {
 		return proto.getItemId();
 	}
@@ -73,11 +86,18 @@ public class Item {
 	}
 
 	public int getCount() {
+		if (bag != null) {
+			return bag.getCount(getItemId());
+		}
 		return count;
 	}
 
 	public void setCount(int count) {
-		this.count = count;
+		if (bag != null) {
+			bag.setCount(getItemId(), count);
+		} else {
+			this.count = count;
+		}
 	}
 
 	public void setProto(ItemDataOuterClass.ItemData item) {
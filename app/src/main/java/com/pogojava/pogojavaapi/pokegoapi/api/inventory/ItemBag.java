@@ -22,9 +22,12 @@ import com.pogojava.pogojavaapi.pokegoapi.main.AsyncServerRequest;
 import com.pogojava.pogojavaapi.pokegoapi.util.PokeAFunc;
 import com.pogojava.pogojavaapi.pokegoapi.util.PokeCallback;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import POGOProtos.Inventory.Item.ItemDataOuterClass.ItemData;
 import POGOProtos.Inventory.Item.ItemIdOuterClass.ItemId;
@@ -38,26 +41,91 @@ import POGOProtos.Networking.Responses.UseIncenseResponseOuterClass.UseIncenseRe
 import POGOProtos.Networking.Responses.UseItemXpBoostResponseOuterClass.UseItemXpBoostResponse;
 
 /**
- * The type Bag.
+ * The type Bag. Counts are kept by item ordinal, along with their total, and every item has one
+ * {@link Item} reading its count from the bag.
  */
 public class ItemBag {
+	private static final ItemId[] ITEM_IDS = ItemId.values();
+
 	private final PokemonGo api;
-	private final ConcurrentMap<ItemId, Item> items = new ConcurrentHashMap<>();
+	private final Item[] items = new Item[ITEM_IDS.length];
+	private final AtomicIntegerArray counts = new AtomicIntegerArray(ITEM_IDS.length);
+	private final AtomicInteger total = new AtomicInteger();
 
 	public ItemBag(PokemonGo api) {
 		this.api = api;
+		for (ItemId id : ITEM_IDS) {
+			if (id != ItemId.UNRECOGNIZED) {
+				items[id.ordinal()] = new Item(this, ItemData.newBuilder().setItemId(id).build());
+			}
+		}
 	}
 
 	/**
 	 * Add an item to inventory, if absent, update it if it's already there.
 	 *
 	 * @param item object that have to be added
+	 * @throws IllegalArgumentException if the item id is not recognized
 	 */
 	public void addItem(ItemData item) {
-		Item current = items.putIfAbsent(item.getItemId(), new Item(item));
-		if (current != null) {
-			current.setCount(item.getCount());
-			current.setProto(item);
+		if (item.getItemId() == ItemId.UNRECOGNIZED) {
+			throw new IllegalArgumentException("You cannot add an UNRECOGNIZED item");
+		}
+		Item current = items[item.getItemId().ordinal()];
+		current.setProto(item);
+		setCount(item.getItemId(), item.getCount());
+	}
+
+	/**
+	 * Gets the count of an item.
+	 *
+	 * @param id the item
+	 * @return the count, 0 if the player has none
+	 */
+	public int getCount(ItemId id) {
+		return counts.get(id.ordinal());
+	}
+
+	/**
+	 * Sets the count of an item.
+	 *
+	 * @param id the item
+	 * @param count the new count
+	 */
+	public void setCount(ItemId id, int count) {
+		int previous = counts.getAndSet(id.ordinal(), count);
+		total.addAndGet(count - previous);
+	}
+
+	/**
+	 * Adds to the count of an item, like for awarded items.
+	 *
+	 * @param id the item
+	 * @param amount the amount to add
+	 * @return the new count
+	 */
+	public int addCount(ItemId id, int amount) {
+		int count = counts.addAndGet(id.ordinal(), amount);
+		total.addAndGet(amount);
+		return count;
+	}
+
+	/**
+	 * Removes from the count of an item, like for used items.
+	 *
+	 * @param id the item
+	 * @param amount the amount to remove
+	 * @return the new count, never less than 0
+	 */
+	public int removeCount(ItemId id, int amount) {
+		int index = id.ordinal();
+		while (true) {
+			int current = counts.get(index);
+			int next = Math.max(current - amount, 0);
+			if (counts.compareAndSet(index, current, next)) {
+				total.addAndGet(next - current);
+				return next;
+			}
 		}
 	}
 
@@ -103,16 +171,20 @@ public class ItemBag {
 			throw new IllegalArgumentException("You cannot get item for UNRECOGNIZED");
 		}
 
-		// prevent returning null
-		if (!items.containsKey(type)) {
-			return new Item(ItemData.newBuilder().setCount(0).setItemId(type).build());
-		}
-
-		return items.get(type);
+		return items[type.ordinal()];
 	}
 
+	/**
+	 * @return the items the player has at least one of
+	 */
 	public Collection<Item> getItems() {
-		return items.values();
+		List<Item> owned = new ArrayList<>();
+		for (int i = 0; i < items.length; i++) {
+			if (counts.get(i) > 0) {
+				owned.add(items[i]);
+			}
+		}
+		return Collections.unmodifiableList(owned);
 	}
 
 	/**
@@ -121,11 +193,7 @@ public class ItemBag {
 	 * @return used space
 	 */
 	public int getItemsCount() {
-		int ct = 0;
-		for (Item item : items.values()) {
-			ct += item.getCount();
-		}
-		return ct;
+		return total.get();
 	}
 
 	/**
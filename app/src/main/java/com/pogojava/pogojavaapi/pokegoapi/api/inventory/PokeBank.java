@@ -13,24 +13,89 @@
  *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 
+
 package com.pogojava.pogojavaapi.pokegoapi.api.inventory;
 
+import com.google.protobuf.GeneratedMessage;
 import com.pogojava.pogojavaapi.pokegoapi.api.PokemonGo;
+import com.pogojava.pogojavaapi.pokegoapi.api.map.pokemon.EvolutionResult;
 import com.pogojava.pogojavaapi.pokegoapi.api.pokemon.Pokemon;
+import com.pogojava.pogojavaapi.pokegoapi.api.pokemon.PokemonMeta;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import POGOProtos.Data.PokemonDataOuterClass;
+import POGOProtos.Enums.PokemonFamilyIdOuterClass.PokemonFamilyId;
 import POGOProtos.Enums.PokemonIdOuterClass;
+import POGOProtos.Enums.PokemonIdOuterClass.PokemonId;
+import POGOProtos.Networking.Requests.Messages.EvolvePokemonMessageOuterClass.EvolvePokemonMessage;
+import POGOProtos.Networking.Requests.Messages.ReleasePokemonMessageOuterClass.ReleasePokemonMessage;
+import POGOProtos.Networking.Requests.Messages.UpgradePokemonMessageOuterClass.UpgradePokemonMessage;
+import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
+import POGOProtos.Networking.Responses.EvolvePokemonResponseOuterClass.EvolvePokemonResponse;
+import POGOProtos.Networking.Responses.ReleasePokemonResponseOuterClass.ReleasePokemonResponse;
+import POGOProtos.Networking.Responses.UpgradePokemonResponseOuterClass.UpgradePokemonResponse;
 
 
+/**
+ * The pokemon of the player, indexed by species, family, CP, IV, favorite and deployed state.
+ * Queries return immutable snapshots and only touch the matching pokemon.
+ */
 public class PokeBank {
+	private static final Comparator<IndexEntry> CP_ORDER = new Comparator<IndexEntry>() {
+		@Override
+		public int compare(IndexEntry first, IndexEntry second) {
+			if (first.cp != second.cp) {
+				return first.cp < second.cp ? -1 : 1;
+			}
+			return compareIds(first.id, second.id);
+		}
+	};
+
+	private static final Comparator<IndexEntry> IV_ORDER = new Comparator<IndexEntry>() {
+		@Override
+		public int compare(IndexEntry first, IndexEntry second) {
+			if (first.ivSum != second.ivSum) {
+				return first.ivSum < second.ivSum ? -1 : 1;
+			}
+			return compareIds(first.id, second.id);
+		}
+	};
+
+	private final PokemonGo api;
 	private final ConcurrentMap<Long, Pokemon> pokemon = new ConcurrentHashMap<Long, Pokemon>();
 
+	private final Object indexLock = new Object();
+	private final HashMap<Long, IndexEntry> entries = new HashMap<>();
+	private final EnumMap<PokemonId, LinkedHashMap<Long, Pokemon>> bySpecies = new EnumMap<>(PokemonId.class);
+	private final EnumMap<PokemonFamilyId, LinkedHashMap<Long, Pokemon>> byFamily =
+			new EnumMap<>(PokemonFamilyId.class);
+	private final TreeSet<IndexEntry> byCp = new TreeSet<>(CP_ORDER);
+	private final TreeSet<IndexEntry> byIv = new TreeSet<>(IV_ORDER);
+	private final LinkedHashMap<Long, Pokemon> favorites = new LinkedHashMap<>();
+	private final LinkedHashMap<Long, Pokemon> deployed = new LinkedHashMap<>();
+
 	public PokeBank() {
+		this(null);
+	}
+
+	/**
+	 * Creates a bank able to send bulk operations.
+	 *
+	 * @param api the api used to send the requests of bulk operations
+	 */
+	public PokeBank(PokemonGo api) {
+		this.api = api;
 	}
 
 	/**
@@ -38,13 +103,39 @@ public class PokeBank {
 	 *
 	 * @param api current api
 	 * @param pokemonData proto of the new pokemon
+	 * @return true if the pokemon was not in the bank yet
 	 */
-	public void addPokemon(PokemonGo api, PokemonDataOuterClass.PokemonData pokemonData) {
-		Pokemon current = pokemon.putIfAbsent(pokemonData.getId(), new Pokemon(api, pokemonData));
-		if (current != null) {
-			current.setProto(pokemonData);
+	public boolean addPokemon(PokemonGo api, PokemonDataOuterClass.PokemonData pokemonData) {
+		synchronized (indexLock) {
+			Pokemon current = pokemon.get(pokemonData.getId());
+			boolean added = current == null;
+			if (added) {
+				current = new Pokemon(api, pokemonData);
+				pokemon.put(pokemonData.getId(), current);
+			} else {
+				current.setProto(pokemonData);
+			}
+			reindex(current);
+			return added;
 		}
+	}
 
+	/**
+	 * Updates the indexes after the proto of a pokemon was changed outside of the bank, like after a power up.
+	 *
+	 * @param changed the pokemon with its new proto
+	 */
+	public void updatePokemon(Pokemon changed) {
+		synchronized (indexLock) {
+			Pokemon current = pokemon.get(changed.getId());
+			if (current == null) {
+				return;
+			}
+			if (current != changed) {
+				current.setProto(changed.getProto());
+			}
+			reindex(current);
+		}
 	}
 
 	/**
@@ -54,13 +145,87 @@ public class PokeBank {
 	 * @return the pokemon by pokemon id
 	 */
 	public List<Pokemon> getPokemonByPokemonId(final PokemonIdOuterClass.PokemonId id) {
-		List<Pokemon> ret = new ArrayList<>();
-		for (Pokemon p : pokemon.values()) {
-			if (p.getPokemonId() == id) {
-				ret.add(p);
-			}
+		synchronized (indexLock) {
+			return snapshot(bySpecies.get(id));
+		}
+	}
+
+	/**
+	 * Gets the pokemon of a family, whatever their evolution.
+	 *
+	 * @param family the family
+	 * @return the pokemon of the family
+	 */
+	public List<Pokemon> getPokemonByFamily(PokemonFamilyId family) {
+		synchronized (indexLock) {
+			return snapshot(byFamily.get(family));
+		}
+	}
+
+	/**
+	 * Gets the pokemon within a CP range, lowest CP first.
+	 *
+	 * @param minCp the minimum CP, inclusive
+	 * @param maxCp the maximum CP, inclusive
+	 * @return the pokemon in the range
+	 */
+	public List<Pokemon> getPokemonByCp(int minCp, int maxCp) {
+		if (minCp > maxCp) {
+			return Collections.emptyList();
+		}
+		synchronized (indexLock) {
+			return snapshot(byCp.subSet(IndexEntry.cpBound(minCp, Long.MIN_VALUE), true,
+					IndexEntry.cpBound(maxCp, Long.MAX_VALUE), true));
+		}
+	}
+
+	/**
+	 * Gets the pokemon within an IV range, lowest IV first.
+	 *
+	 * @param minIvRatio the minimum IV ratio between 0 and 1.0, inclusive
+	 * @param maxIvRatio the maximum IV ratio between 0 and 1.0, inclusive
+	 * @return the pokemon in the range
+	 */
+	public List<Pokemon> getPokemonByIv(double minIvRatio, double maxIvRatio) {
+		// IV ratios are sums of three values out of 45, compare on the sums to avoid rounding issues
+		int minSum = (int) Math.ceil(minIvRatio * 45 - 1e-9);
+		int maxSum = (int) Math.floor(maxIvRatio * 45 + 1e-9);
+		if (minSum > maxSum) {
+			return Collections.emptyList();
+		}
+		synchronized (indexLock) {
+			return snapshot(byIv.subSet(IndexEntry.ivBound(minSum, Long.MIN_VALUE), true,
+					IndexEntry.ivBound(maxSum, Long.MAX_VALUE), true));
+		}
+	}
+
+	/**
+	 * @return the pokemon marked as favorite
+	 */
+	public List<Pokemon> getFavoritePokemon() {
+		synchronized (indexLock) {
+			return snapshot(favorites);
+		}
+	}
+
+	/**
+	 * @return the pokemon deployed in a gym
+	 */
+	public List<Pokemon> getDeployedPokemon() {
+		synchronized (indexLock) {
+			return snapshot(deployed);
 		}
-		return ret;
+	}
+
+	/**
+	 * @return every pokemon of the bank
+	 */
+	public List<Pokemon> getPokemon() {
+		return Collections.unmodifiableList(new ArrayList<>(pokemon.values()));
+	}
+
+	public int size() {
+		return pokemon.size();
 	}
 
 	/**
@@ -69,7 +234,23 @@ public class PokeBank {
 	 * @param pokemon the pokemon
 	 */
 	public void removePokemon(final Pokemon pokemon) {
-		this.pokemon.remove(pokemon.getId());
+		synchronized (indexLock) {
+			this.pokemon.remove(pokemon.getId());
+			unindex(entries.remove(pokemon.getId()));
+		}
+	}
+
+	/**
+	 * Remove a pokemon by id.
+	 *
+	 * @param id the id
+	 * @return true if the pokemon was in the bank
+	 */
+	public boolean removePokemon(long id) {
+		synchronized (indexLock) {
+			unindex(entries.remove(id));
+			return pokemon.remove(id) != null;
+		}
 	}
 
 	/**
@@ -82,5 +263,225 @@ public class PokeBank {
 		return pokemon.get(id);
 	}
 
+	/**
+	 * Transfers a selection of pokemon. The requests go through the bulk lane of the request queue and the
+	 * inventory is refreshed only with the last one, transferred pokemon are removed from the bank as their
+	 * response comes.
+	 *
+	 * @param selection the pokemon to transfer
+	 * @param callback  the callback told about every pokemon and fired once all of them are done
+	 *
+	 * @return callback passed as argument
+	 */
+	public BulkCallback<ReleasePokemonResponse.Result> transferPokemon(Collection<Pokemon> selection,
+			BulkCallback<ReleasePokemonResponse.Result> callback) {
+		return transferOperation().start(selection, callback);
+	}
+
+	BulkOperation<ReleasePokemonResponse, ReleasePokemonResponse.Result> transferOperation() {
+		return new BulkOperation<ReleasePokemonResponse, ReleasePokemonResponse.Result>(api,
+				RequestType.RELEASE_POKEMON) {
+			@Override
+			GeneratedMessage createMessage(Pokemon target) {
+				return ReleasePokemonMessage.newBuilder().setPokemonId(target.getId()).build();
+			}
+
+			@Override
+			ReleasePokemonResponse.Result exec(Pokemon target, ReleasePokemonResponse response) {
+				if (response.getResult() == ReleasePokemonResponse.Result.SUCCESS) {
+					removePokemon(target.getId());
+				}
+				return response.getResult();
+			}
+		};
+	}
+
+	/**
+	 * Evolves a selection of pokemon, each evolved pokemon replaces its former self in the bank as its
+	 * response comes.
+	 *
+	 * @param selection the pokemon to evolve
+	 * @param callback  the callback told about every pokemon and fired once all of them are done
+	 *
+	 * @return callback passed as argument
+	 * @see #transferPokemon(Collection, BulkCallback)
+	 */
+	public BulkCallback<EvolutionResult> evolvePokemon(Collection<Pokemon> selection,
+			BulkCallback<EvolutionResult> callback) {
+		return evolveOperation().start(selection, callback);
+	}
+
+	BulkOperation<EvolvePokemonResponse, EvolutionResult> evolveOperation() {
+		return new BulkOperation<EvolvePokemonResponse, EvolutionResult>(api, RequestType.EVOLVE_POKEMON) {
+			@Override
+			GeneratedMessage createMessage(Pokemon target) {
+				return EvolvePokemonMessage.newBuilder().setPokemonId(target.getId()).build();
+			}
 
+			@Override
+			EvolutionResult exec(Pokemon target, EvolvePokemonResponse response) {
+				EvolutionResult result = new EvolutionResult(api, response);
+				if (result.isSuccessful()) {
+					removePokemon(target.getId());
+					addPokemon(api, response.getEvolvedPokemonData());
+				}
+				return result;
+			}
+		};
+	}
+
+	/**
+	 * Powers up each pokemon of a selection once, the pokemon objects reflect the new changes as their
+	 * response comes.
+	 *
+	 * @param selection the pokemon to power up
+	 * @param callback  the callback told about every pokemon and fired once all of them are done
+	 *
+	 * @return callback passed as argument
+	 * @see #transferPokemon(Collection, BulkCallback)
+	 */
+	public BulkCallback<UpgradePokemonResponse.Result> powerUpPokemon(Collection<Pokemon> selection,
+			BulkCallback<UpgradePokemonResponse.Result> callback) {
+		return powerUpOperation().start(selection, callback);
+	}
+
+	BulkOperation<UpgradePokemonResponse, UpgradePokemonResponse.Result> powerUpOperation() {
+		return new BulkOperation<UpgradePokemonResponse, UpgradePokemonResponse.Result>(api,
+				RequestType.UPGRADE_POKEMON) {
+			@Override
+			GeneratedMessage createMessage(Pokemon target) {
+				return UpgradePokemonMessage.newBuilder().setPokemonId(target.getId()).build();
+			}
+
+			@Override
+			UpgradePokemonResponse.Result exec(Pokemon target, UpgradePokemonResponse response) {
+				if (response.getResult() == UpgradePokemonResponse.Result.SUCCESS) {
+					target.setProto(response.getUpgradedPokemon());
+					updatePokemon(target);
+				}
+				return response.getResult();
+			}
+		};
+	}
+
+	private void reindex(Pokemon current) {
+		unindex(entries.remove(current.getId()));
+		IndexEntry entry = new IndexEntry(current);
+		entries.put(entry.id, entry);
+
+		bucket(bySpecies, entry.species).put(entry.id, current);
+		if (entry.family != null) {
+			bucket(byFamily, entry.family).put(entry.id, current);
+		}
+		byCp.add(entry);
+		byIv.add(entry);
+		if (entry.favorite) {
+			favorites.put(entry.id, current);
+		}
+		if (entry.deployed) {
+			deployed.put(entry.id, current);
+		}
+	}
+
+	private void unindex(IndexEntry entry) {
+		if (entry == null) {
+			return;
+		}
+		removeFromBucket(bySpecies, entry.species, entry.id);
+		if (entry.family != null) {
+			removeFromBucket(byFamily, entry.family, entry.id);
+		}
+		byCp.remove(entry);
+		byIv.remove(entry);
+		favorites.remove(entry.id);
+		deployed.remove(entry.id);
+	}
+
+	private static <K extends Enum<K>> LinkedHashMap<Long, Pokemon> bucket(
+			EnumMap<K, LinkedHashMap<Long, Pokemon>> index, K key) {
+		LinkedHashMap<Long, Pokemon> bucket = index.get(key);
+		if (bucket == null) {
+			bucket = new LinkedHashMap<>();
+			index.put(key, bucket);
+		}
+		return bucket;
+	}
+
+	private static <K extends Enum<K>> void removeFromBucket(
+			EnumMap<K, LinkedHashMap<Long, Pokemon>> index, K key, long id) {
+		LinkedHashMap<Long, Pokemon> bucket = index.get(key);
+		if (bucket != null) {
+			bucket.remove(id);
+			if (bucket.isEmpty()) {
+				index.remove(key);
+			}
+		}
+	}
+
+	private static List<Pokemon> snapshot(LinkedHashMap<Long, Pokemon> bucket) {
+		if (bucket == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(new ArrayList<>(bucket.values()));
+	}
+
+	private static List<Pokemon> snapshot(Collection<IndexEntry> range) {
+		List<Pokemon> result = new ArrayList<>(range.size());
+		for (IndexEntry entry : range) {
+			result.add(entry.pokemon);
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	private static int compareIds(long first, long second) {
+		return first < second ? -1 : (first == second ? 0 : 1);
+	}
+
+	/**
+	 * The indexed values of a pokemon, captured when it was indexed so that a later change of its proto
+	 * cannot break the sorted indexes before it is reindexed
+	 */
+	private static class IndexEntry {
+		final long id;
+		final Pokemon pokemon;
+		final PokemonId species;
+		final PokemonFamilyId family;
+		final int cp;
+		final int ivSum;
+		final boolean favorite;
+		final boolean deployed;
+
+		IndexEntry(Pokemon pokemon) {
+			this.id = pokemon.getId();
+			this.pokemon = pokemon;
+			this.species = pokemon.getPokemonId();
+			PokemonMeta meta = pokemon.getMeta();
+			this.family = meta != null ? meta.getFamily() : null;
+			this.cp = pokemon.getCp();
+			this.ivSum = pokemon.getIndividualAttack() + pokemon.getIndividualDefense()
+					+ pokemon.getIndividualStamina();
+			this.favorite = pokemon.isFavorite();
+			String fortId = pokemon.getDeployedFortId();
+			this.deployed = fortId != null && fortId.length() > 0;
+		}
+
+		private IndexEntry(long id, int cp, int ivSum) {
+			this.id = id;
+			this.pokemon = null;
+			this.species = null;
+			this.family = null;
+			this.cp = cp;
+			this.ivSum = ivSum;
+			this.favorite = false;
+			this.deployed = false;
+		}
+
+		static IndexEntry cpBound(int cp, long id) {
+			return new IndexEntry(id, cp, 0);
+		}
+
+		static IndexEntry ivBound(int ivSum, long id) {
+			return new IndexEntry(id, 0, ivSum);
+		}
+	}
 }
@@ -0,0 +1,150 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.api.map;
+
+import com.pogojava.pogojavaapi.pokegoapi.geometry.S2CellId;
+
+import java.util.Arrays;
+
+/**
+ * Computes the cells around a position directly on raw 64 bit cell ids, reusing the same output buffer
+ * between calls. Cells are ordered from the center outwards, ring by ring, so a cell limit drops the
+ * farthest cells first. Neighbors past the edge of a cube face are taken from the adjacent face.
+ *
+ * <p>Instances are not thread safe.</p>
+ */
+public final class CellNeighborhood {
+	/**
+	 * Cell level used by GET_MAP_OBJECTS.
+	 */
+	public static final int DEFAULT_LEVEL = 15;
+
+	private final int level;
+	private final int size;
+	private final int[] ij = new int[2];
+	private long[] cells = new long[25];
+	private int count;
+
+	/**
+	 * Instantiates a neighborhood of level 15 cells.
+	 */
+	public CellNeighborhood() {
+		this(DEFAULT_LEVEL);
+	}
+
+	/**
+	 * Instantiates a neighborhood of cells at the given level.
+	 *
+	 * @param level the cell level
+	 */
+	public CellNeighborhood(int level) {
+		this.level = level;
+		this.size = 1 << (S2CellId.MAX_LEVEL - level);
+	}
+
+	/**
+	 * Computes the cells of a width x width square centered on a position.
+	 *
+	 * @param latitude  latitude in degrees
+	 * @param longitude longitude in degrees
+	 * @param width     number of cells on each side of the square
+	 * @param maxCells  maximum number of cells to return
+	 * @return the number of cells computed
+	 */
+	public int compute(double latitude, double longitude, int width, int maxCells) {
+		long center = S2CellId.parentId(S2CellId.idFromDegrees(latitude, longitude), level);
+		int face = S2CellId.toFaceIJ(center, ij);
+		int centerI = ij[0];
+		int centerJ = ij[1];
+
+		int capacity = Math.min(width * width, maxCells);
+		if (cells.length < capacity) {
+			cells = new long[capacity];
+		}
+		count = 0;
+
+		int halfWidth = width / 2;
+		for (int ring = 0; ring <= halfWidth; ring++) {
+			for (int x = -ring; x <= ring; x++) {
+				for (int y = -ring; y <= ring; y++) {
+					if (Math.abs(x) != ring && Math.abs(y) != ring) {
+						continue;
+					}
+					if (count == capacity) {
+						return count;
+					}
+					add(neighbor(face, centerI + x * size, centerJ + y * size));
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number of cells from the last compute
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @param index the index of the cell
+	 * @return the cell id at the given index
+	 */
+	public long get(int index) {
+		if (index >= count) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+		}
+		return cells[index];
+	}
+
+	/**
+	 * Returns the reused buffer, only the first size() entries are valid and they change on the next compute.
+	 *
+	 * @return the cell buffer
+	 */
+	public long[] getCells() {
+		return cells;
+	}
+
+	/**
+	 * @return a copy of the cells from the last compute
+	 */
+	public long[] toArray() {
+		return Arrays.copyOf(cells, count);
+	}
+
+	private long neighbor(int face, int i, int j) {
+		long leaf;
+		if (i >= 0 && i < S2CellId.MAX_SIZE && j >= 0 && j < S2CellId.MAX_SIZE) {
+			leaf = S2CellId.fromFaceIJId(face, i, j);
+		} else {
+			leaf = S2CellId.fromFaceIJWrapId(face, i, j);
+		}
+		return S2CellId.parentId(leaf, level);
+	}
+
+	private void add(long cellId) {
+		// around cube corners several offsets can land on the same cell
+		for (int i = 0; i < count; i++) {
+			if (cells[i] == cellId) {
+				return;
+			}
+		}
+		cells[count++] = cellId;
+	}
+}
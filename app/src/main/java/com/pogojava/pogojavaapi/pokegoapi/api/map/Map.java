@@ -16,30 +16,42 @@
 package com.pogojava.pogojavaapi.pokegoapi.api.map;
 
 import com.pogojava.pogojavaapi.pokegoapi.api.PokemonGo;
-import com.pogojava.pogojavaapi.pokegoapi.api.map.fort.Gym;
-import com.pogojava.pogojavaapi.pokegoapi.geometry.MutableInteger;
-import com.pogojava.pogojavaapi.pokegoapi.geometry.S2CellId;
-import com.pogojava.pogojavaapi.pokegoapi.geometry.S2LatLng;
+import com.pogojava.pogojavaapi.pokegoapi.api.settings.MapSettings;
 import com.pogojava.pogojavaapi.pokegoapi.main.AsyncServerRequest;
+import com.pogojava.pogojavaapi.pokegoapi.util.MapUtil;
 import com.pogojava.pogojavaapi.pokegoapi.util.PokeAFunc;
 import com.pogojava.pogojavaapi.pokegoapi.util.PokeCallback;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
-import POGOProtos.Map.Fort.FortDataOuterClass;
-import POGOProtos.Map.Fort.FortTypeOuterClass;
-import POGOProtos.Map.MapCellOuterClass;
 import POGOProtos.Networking.Requests.Messages.GetMapObjectsMessageOuterClass.GetMapObjectsMessage;
 import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
 import POGOProtos.Networking.Responses.GetMapObjectsResponseOuterClass;
 
 public class Map {
+	/**
+	 * Maximum number of cells sent in one GET_MAP_OBJECTS.
+	 */
+	private static final int MAX_CELLS = 20;
+
 	private final PokemonGo api;
+	private final MapCellStore cellStore;
+	private final CellNeighborhood neighborhood = new CellNeighborhood();
+	private final Object cacheLock = new Object();
+	private final AtomicLong cacheHits = new AtomicLong();
+	private final AtomicLong cacheMisses = new AtomicLong();
+	private final AtomicLong coalescedRequests = new AtomicLong();
+	private final AtomicLong supersededRequests = new AtomicLong();
 	private int cellWidth = 5;
 	private long lastMapUpdate;
+	private double lastMapLatitude;
+	private double lastMapLongitude;
+	private MapResponse lastMapResponse;
+	private List<PokeCallback<MapResponse>> pendingCallbacks;
+	private PendingMapRequest pendingRequest;
 
 	/**
 	 * Instantiates a new Map.
@@ -48,24 +60,25 @@ public class Map {
 	 */
 	public Map(PokemonGo api) {
 		this.api = api;
+		this.cellStore = new MapCellStore(api);
 		lastMapUpdate = 0;
 	}
 
 	/**
 	 * Returns the cells requested.
 	 *
-	 * @param cellIds  List of cellId
+	 * @param cellIds  the cell ids
 	 * @param callback an optional callback to handle results
 	 */
-	private PokeCallback<MapResponse> getMapObjects(List<Long> cellIds, PokeCallback<MapResponse> callback) {
+	private PokeCallback<MapResponse> getMapObjects(final long[] cellIds, PokeCallback<MapResponse> callback) {
 		lastMapUpdate = api.currentTimeMillis();
 		GetMapObjectsMessage.Builder builder = GetMapObjectsMessage.newBuilder()
 				.setLatitude(api.getLatitude())
 				.setLongitude(api.getLongitude());
 
-		for (Long cellId : cellIds) {
+		for (long cellId : cellIds) {
 			builder.addCellId(cellId);
-			builder.addSinceTimestampMs(0);
+			builder.addSinceTimestampMs(cellStore.getSinceTimestamp(cellId));
 		}
 
 		new AsyncServerRequest(
@@ -76,28 +89,9 @@ public class Map {
 						MapResponse mapResponse = new MapResponse();
 						mapResponse.mapObjectsResponse = response;
 
+						cellStore.update(response);
 						MapObjects result = new MapObjects(api);
-						for (MapCellOuterClass.MapCell mapCell : response.getMapCellsList()) {
-							result.addNearbyPokemons(mapCell.getNearbyPokemonsList());
-							result.addCatchablePokemons(mapCell.getCatchablePokemonsList());
-							result.addWildPokemons(mapCell.getWildPokemonsList());
-							result.addDecimatedSpawnPoints(mapCell.getDecimatedSpawnPointsList());
-							result.addSpawnPoints(mapCell.getSpawnPointsList());
-
-							Set<Gym> gyms = new HashSet<>();
-							Set<FortDataOuterClass.FortData> pokestops = new HashSet<>();
-
-							for (FortDataOuterClass.FortData fortData : mapCell.getFortsList()) {
-								if (fortData.getType() == FortTypeOuterClass.FortType.CHECKPOINT) {
-									pokestops.add(fortData);
-								} else if (fortData.getType() == FortTypeOuterClass.FortType.GYM) {
-									gyms.add(new Gym(api, fortData));
-								}
-							}
-
-							result.addGyms(gyms);
-							result.addPokestops(pokestops);
-						}
+						cellStore.fill(cellIds, result);
 
 						mapResponse.mapObjects = result;
 						return mapResponse;
@@ -107,67 +101,209 @@ public class Map {
 	}
 
 	/**
-	 * Request a MapObjects around your current location.
+	 * Request a MapObjects around your current location. The last response is reused while the player is
+	 * within the minimum distance and minimum refresh time sent by the server, and concurrent calls share
+	 * the same request. A request still waiting for its response is superseded by a new one once the player
+	 * moved past the minimum distance, and its callbacks get the new response.
 	 *
 	 * @param callback an optional callback to handle results
 	 *
 	 * @return callback passed as argument
 	 */
 	public PokeCallback<MapResponse> getMapObjects(final PokeCallback<MapResponse> callback) {
-		return getMapObjects(getDefaultCells(), callback);
+		MapResponse cached = null;
+		PendingMapRequest superseded = null;
+		PendingMapRequest request;
+		synchronized (cacheLock) {
+			if (pendingRequest != null) {
+				if (isNearLastRequest()) {
+					coalescedRequests.incrementAndGet();
+					pendingCallbacks.add(callback);
+					return callback;
+				}
+				supersededRequests.incrementAndGet();
+				superseded = pendingRequest;
+			} else if (useCache()) {
+				cached = lastMapResponse;
+			} else {
+				pendingCallbacks = new ArrayList<>();
+			}
+
+			if (cached == null) {
+				cacheMisses.incrementAndGet();
+				pendingCallbacks.add(callback);
+				pendingRequest = new PendingMapRequest();
+				lastMapLatitude = api.getLatitude();
+				lastMapLongitude = api.getLongitude();
+			} else {
+				cacheHits.incrementAndGet();
+			}
+			request = pendingRequest;
+		}
+
+		if (cached != null) {
+			if (callback != null) {
+				callback.fire(cached);
+			}
+			return callback;
+		}
+
+		if (superseded != null) {
+			// dropped if not sent yet, its response is ignored otherwise
+			superseded.cancel();
+		}
+		getMapObjects(getDefaultCellIds(), request);
+		return callback;
+	}
+
+	/**
+	 * Takes the callbacks waiting for the given request, unless it was superseded
+	 */
+	private List<PokeCallback<MapResponse>> takePendingCallbacks(PendingMapRequest request, MapResponse result) {
+		synchronized (cacheLock) {
+			if (pendingRequest != request) {
+				return Collections.emptyList();
+			}
+			List<PokeCallback<MapResponse>> callbacks = pendingCallbacks;
+			pendingCallbacks = null;
+			pendingRequest = null;
+			lastMapResponse = result;
+			return callbacks;
+		}
 	}
 
 	/**
-	 * Get a list of all the Cell Ids.
+	 * Get the ids of the cells around a position.
 	 *
 	 * @param latitude  latitude
 	 * @param longitude longitude
 	 * @param width     width
-	 * @return List of Cells
+	 * @return the cell ids, closest first
 	 */
-	private List<Long> getCellIds(double latitude, double longitude, int width) {
-		S2LatLng latLng = S2LatLng.fromDegrees(latitude, longitude);
-		S2CellId cellId = S2CellId.fromLatLng(latLng).parent(15);
+	private long[] getCellIds(double latitude, double longitude, int width) {
+		synchronized (neighborhood) {
+			neighborhood.compute(latitude, longitude, width, MAX_CELLS);
+			return neighborhood.toArray();
+		}
+	}
 
-		MutableInteger index = new MutableInteger(0);
-		MutableInteger jindex = new MutableInteger(0);
+	public void setDefaultWidth(int width) {
+		cellWidth = width;
+		invalidateCache();
+	}
 
-		int level = cellId.level();
-		int size = 1 << (S2CellId.MAX_LEVEL - level);
-		int face = cellId.toFaceIJOrientation(index, jindex, null);
+	/**
+	 * Drops the cached map response, the next call to getMapObjects goes to the server.
+	 */
+	public void invalidateCache() {
+		synchronized (cacheLock) {
+			lastMapResponse = null;
+		}
+	}
 
-		List<Long> cells = new ArrayList<>();
+	/**
+	 * @return the number of getMapObjects calls answered from the cached response
+	 */
+	public long getCacheHitCount() {
+		return cacheHits.get();
+	}
 
-		int halfWidth = (int) Math.floor(width / 2);
-		for (int x = -halfWidth; x <= halfWidth; x++) {
-			if (cells.size() == 20) {
-				return cells;
-			}
+	/**
+	 * @return the number of getMapObjects calls that sent a new request
+	 */
+	public long getCacheMissCount() {
+		return cacheMisses.get();
+	}
 
-			for (int y = -halfWidth; y <= halfWidth; y++) {
-				cells.add(S2CellId.fromFaceIJ(face, index.intValue() + x * size, jindex.intValue() + y * size).parent(15).id());
-			}
-		}
-		return cells;
+	/**
+	 * @return the number of getMapObjects calls that joined a request already in flight
+	 */
+	public long getCoalescedCount() {
+		return coalescedRequests.get();
 	}
 
-	public void setDefaultWidth(int width) {
-		cellWidth = width;
+	/**
+	 * @return the number of getMapObjects requests dropped because the player moved before their response
+	 */
+	public long getSupersededCount() {
+		return supersededRequests.get();
 	}
 
 	/**
 	 * Wether or not to get a fresh copy or use cache;
 	 *
-	 * @return true if enough time has elapsed since the last request, false otherwise
+	 * @return true if the last response is recent enough and the player did not move too far, false otherwise
 	 */
 	private boolean useCache() {
-		return (api.currentTimeMillis() - lastMapUpdate) < api.getSettings().getMapSettings().getMinRefresh();
+		if (lastMapResponse == null || api.getSettings() == null) {
+			return false;
+		}
+		MapSettings settings = api.getSettings().getMapSettings();
+		if ((api.currentTimeMillis() - lastMapUpdate) >= settings.getMinRefresh()) {
+			return false;
+		}
+		return isNearLastRequest();
+	}
+
+	/**
+	 * @return true if the player is within the minimum map distance of the last request
+	 */
+	private boolean isNearLastRequest() {
+		if (api.getSettings() == null) {
+			return true;
+		}
+		return MapUtil.distFrom(lastMapLatitude, lastMapLongitude, api.getLatitude(), api.getLongitude())
+				< api.getSettings().getMapSettings().getMinMapObjectDistance();
+	}
+
+	/**
+	 * Returns the per cell state merged from previous map responses.
+	 *
+	 * @return the cell store
+	 */
+	public MapCellStore getCellStore() {
+		return cellStore;
 	}
 
 	public List<Long> getDefaultCells() {
+		long[] cellIds = getDefaultCellIds();
+		List<Long> cells = new ArrayList<>(cellIds.length);
+		for (long cellId : cellIds) {
+			cells.add(cellId);
+		}
+		return cells;
+	}
+
+	/**
+	 * @return the ids of the cells around the current location, closest first
+	 */
+	public long[] getDefaultCellIds() {
 		return getCellIds(api.getLatitude(), api.getLongitude(), cellWidth);
 	}
 
+	/**
+	 * Dispatches the response of a map request to every call waiting for it
+	 */
+	private class PendingMapRequest extends PokeCallback<MapResponse> {
+		@Override
+		public void onResponse(MapResponse result) {
+			for (PokeCallback<MapResponse> pending : takePendingCallbacks(this, result)) {
+				if (pending != null) {
+					pending.fire(result);
+				}
+			}
+		}
+
+		@Override
+		public void onError(Throwable error) {
+			for (PokeCallback<MapResponse> pending : takePendingCallbacks(this, null)) {
+				if (pending != null) {
+					pending.fire(error);
+				}
+			}
+		}
+	}
+
 	public static class MapResponse {
 		public MapObjects mapObjects;
 		public GetMapObjectsResponseOuterClass.GetMapObjectsResponse mapObjectsResponse;
@@ -0,0 +1,296 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.api.map;
+
+import com.pogojava.pogojavaapi.pokegoapi.api.PokemonGo;
+import com.pogojava.pogojavaapi.pokegoapi.api.map.fort.Gym;
+import com.pogojava.pogojavaapi.pokegoapi.api.map.fort.Pokestop;
+import com.pogojava.pogojavaapi.pokegoapi.util.Time;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import POGOProtos.Map.Fort.FortDataOuterClass.FortData;
+import POGOProtos.Map.Fort.FortTypeOuterClass.FortType;
+import POGOProtos.Map.MapCellOuterClass.MapCell;
+import POGOProtos.Map.Pokemon.MapPokemonOuterClass.MapPokemon;
+import POGOProtos.Map.Pokemon.NearbyPokemonOuterClass.NearbyPokemon;
+import POGOProtos.Map.Pokemon.WildPokemonOuterClass.WildPokemon;
+import POGOProtos.Map.SpawnPointOuterClass.SpawnPoint;
+import POGOProtos.Networking.Responses.GetMapObjectsResponseOuterClass.GetMapObjectsResponse;
+
+/**
+ * Long lived map state keyed by level 15 S2 cell id. Every cell remembers the server timestamp of its
+ * last complete update, so the next GET_MAP_OBJECTS only asks for what changed since then, and the
+ * returned deltas are merged into the objects already known for that cell.
+ */
+public class MapCellStore {
+	/**
+	 * Default time a cell is kept after it was last refreshed.
+	 */
+	public static final long DEFAULT_CELL_TIME_TO_LIVE = 15 * 60 * 1000;
+
+	/**
+	 * Longest valid time_till_hidden_ms, larger values are sent for pokemon whose timer is unknown.
+	 */
+	private static final long MAX_TIME_TILL_HIDDEN = 90 * 1000;
+
+	private final PokemonGo api;
+	private final Time time;
+	private final HashMap<Long, CellState> cells = new HashMap<>();
+	private long cellTimeToLive = DEFAULT_CELL_TIME_TO_LIVE;
+
+	/**
+	 * Instantiates a new cell store.
+	 *
+	 * @param api the api
+	 */
+	public MapCellStore(final PokemonGo api) {
+		this(api, new Time() {
+			@Override
+			public long currentTimeMillis() {
+				return api.currentTimeMillis();
+			}
+		});
+	}
+
+	MapCellStore(PokemonGo api, Time time) {
+		this.api = api;
+		this.time = time;
+	}
+
+	/**
+	 * Returns the timestamp to send as since_timestamp_ms for a cell.
+	 *
+	 * @param cellId the level 15 cell id
+	 * @return the server timestamp of the last complete update of the cell, 0 if unknown
+	 */
+	public synchronized long getSinceTimestamp(long cellId) {
+		CellState state = cells.get(cellId);
+		if (state == null || isStale(state, time.currentTimeMillis())) {
+			return 0;
+		}
+		return state.timestamp;
+	}
+
+	/**
+	 * Merges a map response into the stored cells.
+	 *
+	 * @param response the response to merge
+	 */
+	public synchronized void update(GetMapObjectsResponse response) {
+		long now = time.currentTimeMillis();
+		for (MapCell mapCell : response.getMapCellsList()) {
+			CellState state = cells.get(mapCell.getS2CellId());
+			if (state == null || isStale(state, now)) {
+				state = new CellState();
+				cells.put(mapCell.getS2CellId(), state);
+			}
+			state.merge(mapCell, now);
+		}
+		evict(now);
+	}
+
+	/**
+	 * Adds the objects stored for the given cells to a MapObjects, dropping the ones that expired.
+	 *
+	 * @param cellIds the cells to read
+	 * @param result  the map objects to fill
+	 */
+	public synchronized void fill(long[] cellIds, MapObjects result) {
+		long now = time.currentTimeMillis();
+		for (long cellId : cellIds) {
+			CellState state = cells.get(cellId);
+			if (state == null) {
+				continue;
+			}
+			state.expire(now);
+			result.addNearbyPokemons(state.nearbyPokemons);
+			result.addCatchablePokemons(state.catchablePokemons.values());
+			result.addWildPokemons(state.wildPokemons.values());
+			result.addDecimatedSpawnPoints(state.decimatedSpawnPoints);
+			result.addSpawnPoints(state.spawnPoints);
+			result.addGyms(state.gyms.values());
+			result.addPokestopObjects(state.pokestops.values());
+		}
+	}
+
+	/**
+	 * Removes a pokemon which was caught or fled, it may otherwise be returned until its timer expires.
+	 *
+	 * @param encounterId the encounter id of the pokemon
+	 */
+	public synchronized void remove(long encounterId) {
+		for (CellState state : cells.values()) {
+			state.removePokemon(encounterId);
+		}
+	}
+
+	/**
+	 * Drops every stored cell, the next request will fetch all cells from scratch.
+	 */
+	public synchronized void clear() {
+		cells.clear();
+	}
+
+	/**
+	 * @return the number of cells currently stored
+	 */
+	public synchronized int size() {
+		return cells.size();
+	}
+
+	/**
+	 * Sets how long a cell is kept after its last refresh before it is dropped and fetched from scratch.
+	 *
+	 * @param cellTimeToLive the time to live in milliseconds
+	 */
+	public synchronized void setCellTimeToLive(long cellTimeToLive) {
+		this.cellTimeToLive = cellTimeToLive;
+	}
+
+	public synchronized long getCellTimeToLive() {
+		return cellTimeToLive;
+	}
+
+	private boolean isStale(CellState state, long now) {
+		return now - state.lastRefreshed > cellTimeToLive;
+	}
+
+	private void evict(long now) {
+		Iterator<CellState> iterator = cells.values().iterator();
+		while (iterator.hasNext()) {
+			if (isStale(iterator.next(), now)) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Reads an encounter id sent as a decimal string, encounter ids are unsigned
+	 *
+	 * @return the encounter id, or null if the id is not one
+	 */
+	private static Long parseEncounterId(String id) {
+		if (id.isEmpty()) {
+			return null;
+		}
+		for (int i = 0; i < id.length(); i++) {
+			if (!Character.isDigit(id.charAt(i))) {
+				return null;
+			}
+		}
+		return new BigInteger(id).longValue();
+	}
+
+	private final class CellState {
+		private long timestamp;
+		private long lastRefreshed;
+
+		private final LinkedHashMap<String, FortData> forts = new LinkedHashMap<>();
+		private final LinkedHashMap<String, Gym> gyms = new LinkedHashMap<>();
+		private final LinkedHashMap<String, Pokestop> pokestops = new LinkedHashMap<>();
+		private final LinkedHashMap<Long, MapPokemon> catchablePokemons = new LinkedHashMap<>();
+		private final LinkedHashMap<Long, WildPokemon> wildPokemons = new LinkedHashMap<>();
+		private final LinkedHashSet<SpawnPoint> spawnPoints = new LinkedHashSet<>();
+		private final LinkedHashSet<SpawnPoint> decimatedSpawnPoints = new LinkedHashSet<>();
+		private List<NearbyPokemon> nearbyPokemons = Collections.emptyList();
+
+		private void merge(MapCell mapCell, long now) {
+			// deleted objects are forts or, for pokemon, their encounter id
+			for (String id : mapCell.getDeletedObjectsList()) {
+				removeFort(id);
+				Long encounterId = parseEncounterId(id);
+				if (encounterId != null) {
+					removePokemon(encounterId);
+				}
+			}
+
+			for (FortData fortData : mapCell.getFortsList()) {
+				FortData known = forts.get(fortData.getId());
+				if (known != null && known.equals(fortData)) {
+					continue;
+				}
+				removeFort(fortData.getId());
+				forts.put(fortData.getId(), fortData);
+				if (fortData.getType() == FortType.CHECKPOINT) {
+					pokestops.put(fortData.getId(), new Pokestop(api, fortData));
+				} else if (fortData.getType() == FortType.GYM) {
+					gyms.put(fortData.getId(), new Gym(api, fortData));
+				}
+			}
+
+			for (MapPokemon pokemon : mapCell.getCatchablePokemonsList()) {
+				catchablePokemons.put(pokemon.getEncounterId(), pokemon);
+			}
+			for (WildPokemon pokemon : mapCell.getWildPokemonsList()) {
+				wildPokemons.put(pokemon.getEncounterId(), pokemon);
+			}
+			spawnPoints.addAll(mapCell.getSpawnPointsList());
+			decimatedSpawnPoints.addAll(mapCell.getDecimatedSpawnPointsList());
+
+			// nearby pokemons are relative to the player position, they are never sent as a delta
+			nearbyPokemons = new ArrayList<>(mapCell.getNearbyPokemonsList());
+
+			// a truncated list is only part of the delta, ask again from the same timestamp
+			if (!mapCell.getIsTruncatedList()) {
+				timestamp = mapCell.getCurrentTimestampMs();
+			}
+			lastRefreshed = now;
+		}
+
+		private void removeFort(String id) {
+			forts.remove(id);
+			gyms.remove(id);
+			pokestops.remove(id);
+		}
+
+		private void removePokemon(long encounterId) {
+			catchablePokemons.remove(encounterId);
+			wildPokemons.remove(encounterId);
+		}
+
+		private void expire(long now) {
+			Iterator<MapPokemon> catchable = catchablePokemons.values().iterator();
+			while (catchable.hasNext()) {
+				long expiration = catchable.next().getExpirationTimestampMs();
+				if (expiration > 0 && expiration < now) {
+					catchable.remove();
+				}
+			}
+
+			Iterator<WildPokemon> wild = wildPokemons.values().iterator();
+			while (wild.hasNext()) {
+				WildPokemon pokemon = wild.next();
+				long timeTillHidden = pokemon.getTimeTillHiddenMs();
+				if (timeTillHidden <= 0 || timeTillHidden > MAX_TIME_TILL_HIDDEN) {
+					// unknown timer, keep it as long as the cell itself
+					timeTillHidden = cellTimeToLive;
+				}
+				if (pokemon.getLastModifiedTimestampMs() + timeTillHidden < now) {
+					wild.remove();
+				}
+			}
+		}
+	}
+}
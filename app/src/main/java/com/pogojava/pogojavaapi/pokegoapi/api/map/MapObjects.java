@@ -19,6 +19,7 @@ import com.pogojava.pogojavaapi.pokegoapi.api.PokemonGo;
 import com.pogojava.pogojavaapi.pokegoapi.api.map.fort.Gym;
 import com.pogojava.pogojavaapi.pokegoapi.api.map.fort.Pokestop;
 import com.pogojava.pogojavaapi.pokegoapi.api.map.pokemon.CatchablePokemon;
+import com.pogojava.pogojavaapi.pokegoapi.util.SpatialIndex;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -60,6 +61,10 @@ public class MapObjects {
 	private final Collection<Pokestop> pokestops = Collections.synchronizedCollection(
 			new ArrayList<Pokestop>()
 	);
+	private final SpatialIndex<Gym> gymIndex = new SpatialIndex<>();
+	private final SpatialIndex<Pokestop> pokestopIndex = new SpatialIndex<>();
+	private final SpatialIndex<CatchablePokemon> catchablePokemonIndex = new SpatialIndex<>();
+	private final Set<Long> indexedEncounters = Collections.synchronizedSet(new HashSet<Long>());
 	boolean complete = false;
 	private final PokemonGo api;
 
@@ -96,6 +101,11 @@ public class MapObjects {
 		}
 		complete = true;
 		this.catchablePokemons.addAll(catchablePokemons);
+		for (MapPokemon mapPokemon : catchablePokemons) {
+			if (indexedEncounters.add(mapPokemon.getEncounterId())) {
+				catchablePokemonIndex.add(new CatchablePokemon(api, mapPokemon));
+			}
+		}
 	}
 
 	/**
@@ -109,6 +119,11 @@ public class MapObjects {
 		}
 		complete = true;
 		this.wildPokemons.addAll(wildPokemons);
+		for (WildPokemon wildPokemon : wildPokemons) {
+			if (indexedEncounters.add(wildPokemon.getEncounterId())) {
+				catchablePokemonIndex.add(new CatchablePokemon(api, wildPokemon));
+			}
+		}
 	}
 
 	/**
@@ -148,6 +163,7 @@ public class MapObjects {
 		}
 		complete = true;
 		this.gyms.addAll(gyms);
+		gymIndex.addAll(gyms);
 	}
 
 	/**
@@ -160,11 +176,27 @@ public class MapObjects {
 			return;
 		}
 		complete = true;
-		for (FortData pokestop : pokestops) {
-			this.pokestops.add(new Pokestop(api, pokestop));
+		for (FortData fortData : pokestops) {
+			Pokestop pokestop = new Pokestop(api, fortData);
+			this.pokestops.add(pokestop);
+			pokestopIndex.add(pokestop);
 		}
 	}
 
+	/**
+	 * Add pokestops that were already built.
+	 *
+	 * @param pokestops the pokestops
+	 */
+	public void addPokestopObjects(Collection<Pokestop> pokestops) {
+		if (pokestops == null || pokestops.isEmpty()) {
+			return;
+		}
+		complete = true;
+		this.pokestops.addAll(pokestops);
+		pokestopIndex.addAll(pokestops);
+	}
+
 	/**
 	 * Returns whether any data was returned. When a user requests too many cells/wrong cell level/cells too far away
 	 * from the users location, the server returns empty MapCells.
@@ -225,4 +257,32 @@ public class MapObjects {
 	public Collection<Gym> getGyms() {
 		return gyms;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Spatial index of the gyms, for radius and nearest queries.
+	 *
+	 * @return the gym index
+	 */
+	public SpatialIndex<Gym> getGymIndex() {
+		return gymIndex;
+	}
+
+	/**
+	 * Spatial index of the pokestops, for radius and nearest queries.
+	 *
+	 * @return the pokestop index
+	 */
+	public SpatialIndex<Pokestop> getPokestopIndex() {
+		return pokestopIndex;
+	}
+
+	/**
+	 * Spatial index of the catchable and wild pokemons. Lured pokemons are not included since they depend on
+	 * the player being in range of the pokestop, see {@link #getAllCatchablePokemons()}.
+	 *
+	 * @return the catchable pokemon index
+	 */
+	public SpatialIndex<CatchablePokemon> getCatchablePokemonIndex() {
+		return catchablePokemonIndex;
+	}
+}
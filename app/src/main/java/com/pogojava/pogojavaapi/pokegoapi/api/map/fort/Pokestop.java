@@ -18,6 +18,7 @@ package com.pogojava.pogojavaapi.pokegoapi.api.map.fort;
 import com.pogojava.pogojavaapi.pokegoapi.api.PokemonGo;
 import com.pogojava.pogojavaapi.pokegoapi.geometry.S2LatLng;
 import com.pogojava.pogojavaapi.pokegoapi.main.AsyncServerRequest;
+import com.pogojava.pogojavaapi.pokegoapi.util.MapPoint;
 import com.pogojava.pogojavaapi.pokegoapi.util.PokeAFunc;
 import com.pogojava.pogojavaapi.pokegoapi.util.PokeCallback;
 
@@ -35,7 +36,7 @@ import POGOProtos.Networking.Responses.FortSearchResponseOuterClass;
 /**
  * Created by mjmfighter on 7/20/2016.
  */
-public class Pokestop {
+public class Pokestop implements MapPoint {
 
 	private final PokemonGo api;
 	private final FortDataOuterClass.FortData fortData;
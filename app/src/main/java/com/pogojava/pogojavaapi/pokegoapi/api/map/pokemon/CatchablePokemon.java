@@ -147,6 +147,11 @@ public class CatchablePokemon implements MapPoint {
 					@Override
 					public NormalEncounterResult exec(EncounterResponse response) {
 						encountered = response.getStatus() == EncounterResponse.Status.ENCOUNTER_SUCCESS;
+						if (response.getStatus() == EncounterResponse.Status.ENCOUNTER_POKEMON_FLED
+								|| response.getStatus() == EncounterResponse.Status.ENCOUNTER_NOT_FOUND
+								|| response.getStatus() == EncounterResponse.Status.ENCOUNTER_ALREADY_HAPPENED) {
+							api.getMap().getCellStore().remove(encounterId);
+						}
 						return new NormalEncounterResult(api, response);
 					}
 				}, callback, api);
@@ -302,6 +307,11 @@ public class CatchablePokemon implements MapPoint {
 					new PokeAFunc<CatchPokemonResponseOuterClass.CatchPokemonResponse, CatchResult>() {
 						@Override
 						public CatchResult exec(CatchPokemonResponseOuterClass.CatchPokemonResponse response) {
+							if (response.getStatus() == CatchPokemonResponseOuterClass.CatchPokemonResponse.CatchStatus.CATCH_SUCCESS
+									|| response.getStatus() == CatchPokemonResponseOuterClass.CatchPokemonResponse.CatchStatus.CATCH_FLEE) {
+								// gone from the map, the cached cells must not return it anymore
+								api.getMap().getCellStore().remove(encounterId);
+							}
 							return new CatchResult(response);
 						}
 					}, wrappedCallback, api);
@@ -18,7 +18,6 @@ package com.pogojava.pogojavaapi.pokegoapi.api.player;
 import android.util.Log;
 
 import com.pogojava.pogojavaapi.pokegoapi.api.PokemonGo;
-import com.pogojava.pogojavaapi.pokegoapi.api.inventory.Item;
 import com.pogojava.pogojavaapi.pokegoapi.api.inventory.ItemBag;
 import com.pogojava.pogojavaapi.pokegoapi.api.inventory.Stats;
 import com.pogojava.pogojavaapi.pokegoapi.exceptions.InvalidCurrencyException;
@@ -221,8 +220,7 @@ public class PlayerProfile {
 						// Add the awarded items to our bag
 						ItemBag bag = api.getInventories().getItemBag();
 						for (ItemAward itemAward : response.getItemsAwardedList()) {
-							Item item = bag.getItem(itemAward.getItemId());
-							item.setCount(item.getCount() + itemAward.getItemCount());
+							bag.addCount(itemAward.getItemId(), itemAward.getItemCount());
 						}
 
 						// Build a new rewards object and return it
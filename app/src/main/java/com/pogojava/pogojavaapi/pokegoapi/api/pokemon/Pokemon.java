@@ -182,6 +182,9 @@ public class Pokemon extends PokemonDetails {
 					public UpgradePokemonResponse.Result exec(UpgradePokemonResponse response) {
 						//set new pokemon details
 						setProto(response.getUpgradedPokemon());
+						if (api.getInventories() != null) {
+							api.getInventories().getPokebank().updatePokemon(Pokemon.this);
+						}
 						return response.getResult();
 					}
 				}, callback, api);
@@ -70,6 +70,10 @@ public class MapSettings {
 		return minRefresh;
 	}
 
+	public float getMinMapObjectDistance() {
+		return minMapObjectDistance;
+	}
+
 	public double getPokemonVisibilityRange() {
 		return pokemonVisibilityRange;
 	}
@@ -0,0 +1,78 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.auth;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+
+import java.io.IOException;
+
+import okhttp3.ResponseBody;
+
+/**
+ * Json adapters of the login providers. They are built on first use and shared by every provider, instead of
+ * resolving the classes again on each login or token refresh.
+ */
+final class AuthJson {
+
+	private AuthJson() {
+	}
+
+	static JsonAdapter<PtcAuthJson> ptcAuth() {
+		return Adapters.PTC_AUTH;
+	}
+
+	static JsonAdapter<PtcError> ptcError() {
+		return Adapters.PTC_ERROR;
+	}
+
+	static JsonAdapter<GoogleAuthJson> googleAuth() {
+		return Adapters.GOOGLE_AUTH;
+	}
+
+	static JsonAdapter<GoogleAuthTokenJson> googleAuthToken() {
+		return Adapters.GOOGLE_AUTH_TOKEN;
+	}
+
+	/**
+	 * Reads a response body as it arrives, without copying it into a string first, and closes it.
+	 *
+	 * @param adapter the adapter of the expected type
+	 * @param body    the response body
+	 * @param <T>     the expected type
+	 * @return the parsed body
+	 * @throws IOException if the body could not be read or is not valid json
+	 */
+	static <T> T read(JsonAdapter<T> adapter, ResponseBody body) throws IOException {
+		try {
+			return adapter.fromJson(body.source());
+		} finally {
+			body.close();
+		}
+	}
+
+	/**
+	 * Holder initialized by the class loader on first access, which makes it lazy and thread safe
+	 */
+	private static final class Adapters {
+		static final Moshi MOSHI = new Moshi.Builder().build();
+		static final JsonAdapter<PtcAuthJson> PTC_AUTH = MOSHI.adapter(PtcAuthJson.class);
+		static final JsonAdapter<PtcError> PTC_ERROR = MOSHI.adapter(PtcError.class);
+		static final JsonAdapter<GoogleAuthJson> GOOGLE_AUTH = MOSHI.adapter(GoogleAuthJson.class);
+		static final JsonAdapter<GoogleAuthTokenJson> GOOGLE_AUTH_TOKEN = MOSHI.adapter(GoogleAuthTokenJson.class);
+	}
+}
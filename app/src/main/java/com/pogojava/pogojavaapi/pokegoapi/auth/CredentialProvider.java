@@ -13,21 +13,286 @@
  *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 
+
 package com.pogojava.pogojavaapi.pokegoapi.auth;
 
+import android.util.Log;
+
 import com.pogojava.pogojavaapi.pokegoapi.exceptions.LoginFailedException;
 import com.pogojava.pogojavaapi.pokegoapi.exceptions.RemoteServerException;
 
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
 import POGOProtos.Networking.Envelopes.RequestEnvelopeOuterClass.RequestEnvelope.AuthInfo;
 
 /**
  * Any Credential Provider can extend this.
+ *
+ * Providers that can renew their token implement {@link #renewToken()} and call {@link #scheduleRenewal(long)}
+ * once they got a token, the token is then renewed in the background before it expires. Only one renewal runs
+ * at a time, callers asking for a renewal while one is running wait for it instead of starting another.
+ *
+ * Providers given a {@link CredentialStore} keep their token in it and start from the stored token on the next
+ * run while it is still valid, a stored token rejected by the server is dropped and renewed.
  */
 public abstract class CredentialProvider {
+	private static final String TAG = CredentialProvider.class.getSimpleName();
+
+	private static ScheduledThreadPoolExecutor renewExecutor;
+
+	private final Object renewLock = new Object();
+	private FutureTask<Void> renewal;
+	private ScheduledFuture<?> scheduledRenewal;
+
+	private CredentialStore credentialStore;
+	private String credentialKey;
+	private volatile boolean tokenRestored;
 
 	public abstract String getTokenId() throws LoginFailedException, RemoteServerException;
 
 	public abstract AuthInfo getAuthInfo() throws LoginFailedException, RemoteServerException;
 
 	public abstract boolean isTokenIdExpired();
+
+	/**
+	 * Fetches a new token. Never called concurrently for the same provider.
+	 *
+	 * @throws LoginFailedException  if the login failed
+	 * @throws RemoteServerException if the server failed to respond
+	 */
+	protected abstract void renewToken() throws LoginFailedException, RemoteServerException;
+
+	/**
+	 * Makes sure the token can be sent. A token past its refresh time but still accepted by the server is kept
+	 * while a new one is fetched in the background, an expired token is renewed on the calling thread.
+	 *
+	 * @param now         the current time in milliseconds
+	 * @param refreshTime when the token should be renewed
+	 * @param gracePeriod how long after the refresh time the token is still accepted
+	 * @throws LoginFailedException  if the login failed
+	 * @throws RemoteServerException if the server failed to respond
+	 */
+	protected final void ensureToken(long now, long refreshTime, long gracePeriod)
+			throws LoginFailedException, RemoteServerException {
+		if (now <= refreshTime) {
+			return;
+		}
+		if (now <= refreshTime + gracePeriod) {
+			renewInBackground();
+		} else {
+			renewNow();
+		}
+	}
+
+	/**
+	 * Renews the token on the calling thread, or waits for the renewal already running.
+	 *
+	 * @throws LoginFailedException  if the login failed
+	 * @throws RemoteServerException if the server failed to respond
+	 */
+	public final void renewNow() throws LoginFailedException, RemoteServerException {
+		FutureTask<Void> task;
+		boolean owner = false;
+		synchronized (renewLock) {
+			if (renewal == null) {
+				renewal = newRenewal();
+				owner = true;
+			}
+			task = renewal;
+		}
+		if (owner) {
+			task.run();
+		}
+
+		try {
+			task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new LoginFailedException("Interrupted while waiting for the token", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof LoginFailedException) {
+				throw (LoginFailedException) cause;
+			} else if (cause instanceof RemoteServerException) {
+				throw (RemoteServerException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RemoteServerException(cause);
+		}
+	}
+
+	/**
+	 * Starts renewing the token in the background, unless a renewal is already running.
+	 */
+	public final void renewInBackground() {
+		FutureTask<Void> task;
+		synchronized (renewLock) {
+			if (renewal != null) {
+				return;
+			}
+			renewal = task = newRenewal();
+		}
+		getRenewExecutor().execute(task);
+	}
+
+	/**
+	 * Renews the token in the background after the given delay, replacing any renewal scheduled before.
+	 *
+	 * @param delay the delay in milliseconds
+	 */
+	protected final void scheduleRenewal(long delay) {
+		synchronized (renewLock) {
+			if (scheduledRenewal != null) {
+				scheduledRenewal.cancel(false);
+			}
+			scheduledRenewal = getRenewExecutor().schedule(new Runnable() {
+				@Override
+				public void run() {
+					renewInBackground();
+				}
+			}, Math.max(0, delay), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stops renewing the token in the background. A renewal already running still completes.
+	 */
+	public void cancelRenewal() {
+		synchronized (renewLock) {
+			if (scheduledRenewal != null) {
+				scheduledRenewal.cancel(false);
+				scheduledRenewal = null;
+			}
+		}
+	}
+
+	/**
+	 * @return true if the token is being renewed
+	 */
+	public boolean isRenewing() {
+		synchronized (renewLock) {
+			return renewal != null;
+		}
+	}
+
+	/**
+	 * Sets where the token is kept across restarts, to be called before the first login.
+	 *
+	 * @param store the store, or null to keep the token in memory only
+	 * @param key   the key of the token in the store, unique per account
+	 */
+	protected final void setCredentialStore(CredentialStore store, String key) {
+		this.credentialStore = store;
+		this.credentialKey = key;
+	}
+
+	/**
+	 * Reads the token kept by a previous run.
+	 *
+	 * @param now the current time in milliseconds
+	 * @return the stored token if it does not need to be renewed yet, null otherwise
+	 */
+	protected final StoredToken restoreToken(long now) {
+		if (credentialStore == null) {
+			return null;
+		}
+		try {
+			byte[] data = credentialStore.load(credentialKey);
+			if (data == null) {
+				return null;
+			}
+			StoredToken token = StoredToken.parseFrom(data);
+			if (token.getExpiresTimestamp() <= now) {
+				return null;
+			}
+			tokenRestored = true;
+			return token;
+		} catch (IOException e) {
+			Log.w(TAG, "Cannot read the stored token", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Keeps a token just obtained from the server for the next runs.
+	 *
+	 * @param token the token
+	 */
+	protected final void storeToken(StoredToken token) {
+		tokenRestored = false;
+		if (credentialStore == null) {
+			return;
+		}
+		try {
+			credentialStore.save(credentialKey, token.toByteArray());
+		} catch (IOException e) {
+			Log.w(TAG, "Cannot store the token", e);
+		}
+	}
+
+	/**
+	 * Drops the token restored from the credential store once the server rejected it, and logs in again.
+	 *
+	 * @return true if the token was a restored one and got renewed, false otherwise
+	 * @throws LoginFailedException  if the login failed
+	 * @throws RemoteServerException if the server failed to respond
+	 */
+	public boolean invalidateRestoredToken() throws LoginFailedException, RemoteServerException {
+		if (!tokenRestored) {
+			return false;
+		}
+		tokenRestored = false;
+		try {
+			credentialStore.remove(credentialKey);
+		} catch (IOException e) {
+			Log.w(TAG, "Cannot remove the stored token", e);
+		}
+		renewNow();
+		return true;
+	}
+
+	private FutureTask<Void> newRenewal() {
+		return new FutureTask<>(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				try {
+					renewToken();
+					return null;
+				} catch (Exception e) {
+					Log.w(TAG, "Token renewal failed", e);
+					throw e;
+				} finally {
+					synchronized (renewLock) {
+						renewal = null;
+					}
+				}
+			}
+		});
+	}
+
+	private static synchronized ScheduledThreadPoolExecutor getRenewExecutor() {
+		if (renewExecutor == null) {
+			renewExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Token Renewal Thread");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			renewExecutor.setKeepAliveTime(10, TimeUnit.SECONDS);
+			renewExecutor.allowCoreThreadTimeOut(true);
+		}
+		return renewExecutor;
+	}
 }
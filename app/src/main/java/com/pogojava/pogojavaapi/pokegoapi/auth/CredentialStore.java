@@ -0,0 +1,52 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.auth;
+
+import java.io.IOException;
+
+/**
+ * Keeps credentials across process restarts, so a still valid token or auth ticket can be reused instead of
+ * logging in again. Values are opaque blobs, implementations only have to store them by key.
+ */
+public interface CredentialStore {
+
+	/**
+	 * Stores a value, replacing the previous one.
+	 *
+	 * @param key   the key
+	 * @param value the value
+	 * @throws IOException if the value could not be stored
+	 */
+	void save(String key, byte[] value) throws IOException;
+
+	/**
+	 * Reads a value.
+	 *
+	 * @param key the key
+	 * @return the value, or null if none is stored
+	 * @throws IOException if the value could not be read
+	 */
+	byte[] load(String key) throws IOException;
+
+	/**
+	 * Removes a value, if any.
+	 *
+	 * @param key the key
+	 * @throws IOException if the value could not be removed
+	 */
+	void remove(String key) throws IOException;
+}
@@ -0,0 +1,101 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.auth;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+
+/**
+ * Stores each value in its own file of a directory. Tokens are written in clear, so the directory should be
+ * private to the application (on Android, {@code Context.getFilesDir()} or below).
+ */
+public class FileCredentialStore implements CredentialStore {
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final File directory;
+
+	/**
+	 * Instantiates a store writing in the given directory, created if needed.
+	 *
+	 * @param directory the directory
+	 */
+	public FileCredentialStore(File directory) {
+		this.directory = directory;
+	}
+
+	@Override
+	public synchronized void save(String key, byte[] value) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create " + directory);
+		}
+		// write aside and rename, a crash never leaves a truncated file behind
+		File file = getFile(key);
+		File temp = new File(directory, file.getName() + ".tmp");
+		FileOutputStream output = new FileOutputStream(temp);
+		try {
+			output.write(value);
+			output.getFD().sync();
+		} finally {
+			output.close();
+		}
+		if (!temp.renameTo(file)) {
+			temp.delete();
+			throw new IOException("Cannot write " + file);
+		}
+	}
+
+	@Override
+	public synchronized byte[] load(String key) throws IOException {
+		File file = getFile(key);
+		if (!file.isFile()) {
+			return null;
+		}
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			byte[] value = new byte[(int) input.length()];
+			input.readFully(value);
+			return value;
+		} finally {
+			input.close();
+		}
+	}
+
+	@Override
+	public synchronized void remove(String key) throws IOException {
+		File file = getFile(key);
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Cannot delete " + file);
+		}
+	}
+
+	/**
+	 * Keys are hex encoded, any key maps to a valid and distinct file name
+	 */
+	private File getFile(String key) {
+		byte[] bytes = key.getBytes(UTF_8);
+		char[] name = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			name[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+			name[i * 2 + 1] = HEX[bytes[i] & 0xF];
+		}
+		return new File(directory, new String(name) + ".cred");
+	}
+}
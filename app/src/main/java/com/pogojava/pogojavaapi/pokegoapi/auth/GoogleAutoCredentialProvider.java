@@ -2,6 +2,7 @@ package com.pogojava.pogojavaapi.pokegoapi.auth;
 
 import com.pogojava.pogojavaapi.pokegoapi.exceptions.LoginFailedException;
 import com.pogojava.pogojavaapi.pokegoapi.exceptions.RemoteServerException;
+import com.pogojava.pogojavaapi.pokegoapi.util.HttpClientFactory;
 import com.pogojava.pogojavaapi.pokegoapi.util.SystemTimeImpl;
 import com.pogojava.pogojavaapi.pokegoapi.util.Time;
 
@@ -22,12 +23,14 @@ public class GoogleAutoCredentialProvider extends CredentialProvider {
 			"audience:server:client_id:848232511240-7so421jotr2609rmqakceuu1luuq0ptb.apps.googleusercontent.com";
 	private static String GOOGLE_LOGIN_APP = "com.nianticlabs.pokemongo";
 	private static String GOOGLE_LOGIN_CLIENT_SIG = "321187995bc7cdc2b5fc91b11a96e2baa8602c62";
+	//We try and refresh token 5 minutes before it actually expires
+	private static final long REFRESH_TOKEN_BUFFER_TIME = 5 * 60 * 1000;
 
 	private final Gpsoauth gpsoauth;
 	private final String username;
 	private Time time;
 
-	private TokenInfo tokenInfo;
+	private volatile TokenInfo tokenInfo;
 
 	/**
 	 * Constructs credential provider using username and password
@@ -40,10 +43,11 @@ public class GoogleAutoCredentialProvider extends CredentialProvider {
 	 */
 	public GoogleAutoCredentialProvider(OkHttpClient httpClient, String username, String password)
 			throws LoginFailedException, RemoteServerException {
-		this.gpsoauth = new Gpsoauth(httpClient);
+		this.gpsoauth = new Gpsoauth(HttpClientFactory.getDefault().share(httpClient));
 		this.username = username;
-		this.tokenInfo = login(username, password);
 		this.time = new SystemTimeImpl();
+		this.tokenInfo = login(username, password);
+		scheduleRenewal(getRefreshTime() - this.time.currentTimeMillis());
 	}
 
 	/**
@@ -56,10 +60,34 @@ public class GoogleAutoCredentialProvider extends CredentialProvider {
 	 */
 	public GoogleAutoCredentialProvider(OkHttpClient httpClient, String username, String password, Time time)
 			throws LoginFailedException, RemoteServerException {
-		this.gpsoauth = new Gpsoauth(httpClient);
+		this(httpClient, username, password, time, null);
+	}
+
+	/**
+	 * @param httpClient the client that will make http call
+	 * @param username   google username
+	 * @param password   google pwd
+	 * @param time       time instance used to refresh token
+	 * @param store      where the token is kept across restarts, or null
+	 * @throws LoginFailedException  login failed possibly due to invalid credentials
+	 * @throws RemoteServerException some server/network failure
+	 */
+	public GoogleAutoCredentialProvider(OkHttpClient httpClient, String username, String password, Time time,
+										CredentialStore store)
+			throws LoginFailedException, RemoteServerException {
+		this.gpsoauth = new Gpsoauth(HttpClientFactory.getDefault().share(httpClient));
 		this.username = username;
-		this.tokenInfo = login(username, password);
 		this.time = time;
+		setCredentialStore(store, "google-auto:" + username);
+		StoredToken stored = restoreToken(time.currentTimeMillis());
+		if (stored != null) {
+			long expiry = (stored.getExpiresTimestamp() + REFRESH_TOKEN_BUFFER_TIME) / 1000;
+			this.tokenInfo = new TokenInfo(new AuthToken(stored.getTokenId(), expiry), stored.getRefreshToken());
+		} else {
+			this.tokenInfo = login(username, password);
+			storeTokenInfo();
+		}
+		scheduleRenewal(getRefreshTime() - time.currentTimeMillis());
 	}
 
 	private TokenInfo login(String username, String password)
@@ -96,6 +124,24 @@ public class GoogleAutoCredentialProvider extends CredentialProvider {
 		}
 	}
 
+	@Override
+	protected void renewToken() throws LoginFailedException, RemoteServerException {
+		tokenInfo = refreshToken(username, tokenInfo.refreshToken);
+		storeTokenInfo();
+		scheduleRenewal(getRefreshTime() - time.currentTimeMillis());
+	}
+
+	private void storeTokenInfo() {
+		storeToken(new StoredToken(tokenInfo.authToken.getToken(), tokenInfo.refreshToken, getRefreshTime()));
+	}
+
+	/**
+	 * @return the time in milliseconds when the token should be renewed
+	 */
+	private long getRefreshTime() {
+		return tokenInfo.authToken.getExpiry() * 1000 - REFRESH_TOKEN_BUFFER_TIME;
+	}
+
 	/**
 	 * @return token id
 	 * @throws RemoteServerException login failed possibly due to invalid credentials
@@ -103,9 +149,7 @@ public class GoogleAutoCredentialProvider extends CredentialProvider {
 	 */
 	@Override
 	public String getTokenId() throws RemoteServerException, LoginFailedException {
-		if (isTokenIdExpired()) {
-			this.tokenInfo = refreshToken(username, tokenInfo.refreshToken);
-		}
+		ensureToken(time.currentTimeMillis(), getRefreshTime(), REFRESH_TOKEN_BUFFER_TIME);
 		return tokenInfo.authToken.getToken();
 	}
 
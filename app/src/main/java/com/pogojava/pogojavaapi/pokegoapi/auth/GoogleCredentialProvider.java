@@ -19,7 +19,7 @@ import android.util.Log;
 
 import com.pogojava.pogojavaapi.pokegoapi.exceptions.LoginFailedException;
 import com.pogojava.pogojavaapi.pokegoapi.exceptions.RemoteServerException;
-import com.squareup.moshi.Moshi;
+import com.pogojava.pogojavaapi.pokegoapi.util.HttpClientFactory;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
@@ -43,11 +43,11 @@ public class GoogleCredentialProvider extends CredentialProvider {
 
 	private final OnGoogleLoginOAuthCompleteListener onGoogleLoginOAuthCompleteListener;
 
-	private long expiresTimestamp;
+	private volatile long expiresTimestamp;
 
-	private String tokenId;
+	private volatile String tokenId;
 
-	private String refreshToken;
+	private volatile String refreshToken;
 
 	private AuthInfo.Builder authbuilder;
 
@@ -61,7 +61,7 @@ public class GoogleCredentialProvider extends CredentialProvider {
 	 */
 	public GoogleCredentialProvider(OkHttpClient client, String refreshToken)
 			throws LoginFailedException, RemoteServerException {
-		this.client = client;
+		this.client = HttpClientFactory.getDefault().share(client);
 		this.refreshToken = refreshToken;
 		onGoogleLoginOAuthCompleteListener = null;
 		refreshToken(refreshToken);
@@ -78,7 +78,7 @@ public class GoogleCredentialProvider extends CredentialProvider {
 	public GoogleCredentialProvider(OkHttpClient client,
 									OnGoogleLoginOAuthCompleteListener onGoogleLoginOAuthCompleteListener)
 			throws LoginFailedException {
-		this.client = client;
+		this.client = HttpClientFactory.getDefault().share(client);
 		if (onGoogleLoginOAuthCompleteListener != null) {
 			this.onGoogleLoginOAuthCompleteListener = onGoogleLoginOAuthCompleteListener;
 		} else {
@@ -115,10 +115,9 @@ public class GoogleCredentialProvider extends CredentialProvider {
 		} catch (IOException e) {
 			throw new RemoteServerException("Network Request failed to fetch refreshed tokenId", e);
 		}
-		Moshi moshi = new Moshi.Builder().build();
 		GoogleAuthTokenJson googleAuthTokenJson;
 		try {
-			googleAuthTokenJson = moshi.adapter(GoogleAuthTokenJson.class).fromJson(response.body().string());
+			googleAuthTokenJson = AuthJson.read(AuthJson.googleAuthToken(), response.body());
 			Log.d(TAG, "" + googleAuthTokenJson.getExpiresIn());
 		} catch (IOException e) {
 			throw new RemoteServerException("Failed to unmarshal the Json response to fetch refreshed tokenId", e);
@@ -127,9 +126,10 @@ public class GoogleCredentialProvider extends CredentialProvider {
 			throw new LoginFailedException(googleAuthTokenJson.getError());
 		} else {
 			Log.d(TAG, "Refreshed Token " + googleAuthTokenJson.getIdToken());
+			tokenId = googleAuthTokenJson.getIdToken();
 			expiresTimestamp = System.currentTimeMillis()
 					+ (googleAuthTokenJson.getExpiresIn() * 1000 - REFRESH_TOKEN_BUFFER_TIME);
-			tokenId = googleAuthTokenJson.getIdToken();
+			scheduleRenewal(expiresTimestamp - System.currentTimeMillis());
 		}
 	}
 
@@ -159,11 +159,9 @@ public class GoogleCredentialProvider extends CredentialProvider {
 			throw new LoginFailedException("Network Request failed to fetch tokenId", e);
 		}
 
-		Moshi moshi = new Moshi.Builder().build();
-
 		GoogleAuthJson googleAuth;
 		try {
-			googleAuth = moshi.adapter(GoogleAuthJson.class).fromJson(response.body().string());
+			googleAuth = AuthJson.read(AuthJson.googleAuth(), response.body());
 			Log.d(TAG, "" + googleAuth.getExpiresIn());
 		} catch (IOException e) {
 			throw new LoginFailedException("Failed to unmarshell the Json response to fetch tokenId", e);
@@ -186,10 +184,11 @@ public class GoogleCredentialProvider extends CredentialProvider {
 
 		Log.d(TAG, "Got token: " + googleAuthTokenJson.getIdToken());
 		onGoogleLoginOAuthCompleteListener.onTokenIdReceived(googleAuthTokenJson);
-		expiresTimestamp = System.currentTimeMillis()
-				+ (googleAuthTokenJson.getExpiresIn() * 1000 - REFRESH_TOKEN_BUFFER_TIME);
 		tokenId = googleAuthTokenJson.getIdToken();
 		refreshToken = googleAuthTokenJson.getRefreshToken();
+		expiresTimestamp = System.currentTimeMillis()
+				+ (googleAuthTokenJson.getExpiresIn() * 1000 - REFRESH_TOKEN_BUFFER_TIME);
+		scheduleRenewal(expiresTimestamp - System.currentTimeMillis());
 	}
 
 	/**
@@ -219,8 +218,7 @@ public class GoogleCredentialProvider extends CredentialProvider {
 
 		Response response = client.newCall(request).execute();
 
-		Moshi moshi = new Moshi.Builder().build();
-		GoogleAuthTokenJson token = moshi.adapter(GoogleAuthTokenJson.class).fromJson(response.body().string());
+		GoogleAuthTokenJson token = AuthJson.read(AuthJson.googleAuthToken(), response.body());
 
 		if (token.getError() == null) {
 			return token;
@@ -229,11 +227,14 @@ public class GoogleCredentialProvider extends CredentialProvider {
 		}
 	}
 
+	@Override
+	protected void renewToken() throws LoginFailedException, RemoteServerException {
+		refreshToken(refreshToken);
+	}
+
 	@Override
 	public String getTokenId() throws LoginFailedException, RemoteServerException {
-		if (isTokenIdExpired()) {
-			refreshToken(refreshToken);
-		}
+		ensureToken(System.currentTimeMillis(), expiresTimestamp, REFRESH_TOKEN_BUFFER_TIME);
 		return tokenId;
 	}
 
@@ -246,9 +247,7 @@ public class GoogleCredentialProvider extends CredentialProvider {
 	 */
 	@Override
 	public AuthInfo getAuthInfo() throws LoginFailedException, RemoteServerException {
-		if (isTokenIdExpired()) {
-			refreshToken(refreshToken);
-		}
+		ensureToken(System.currentTimeMillis(), expiresTimestamp, REFRESH_TOKEN_BUFFER_TIME);
 		authbuilder.setProvider("google");
 		authbuilder.setToken(AuthInfo.JWT.newBuilder().setContents(tokenId).setUnknown2(59).build());
 		return authbuilder.build();
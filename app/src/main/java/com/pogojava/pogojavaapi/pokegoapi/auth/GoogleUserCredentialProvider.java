@@ -19,11 +19,14 @@ import android.util.Log;
 
 import com.pogojava.pogojavaapi.pokegoapi.exceptions.LoginFailedException;
 import com.pogojava.pogojavaapi.pokegoapi.exceptions.RemoteServerException;
+import com.pogojava.pogojavaapi.pokegoapi.util.HttpClientFactory;
 import com.pogojava.pogojavaapi.pokegoapi.util.SystemTimeImpl;
 import com.pogojava.pogojavaapi.pokegoapi.util.Time;
-import com.squareup.moshi.Moshi;
 
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 import POGOProtos.Networking.Envelopes.RequestEnvelopeOuterClass.RequestEnvelope.AuthInfo;
 import okhttp3.HttpUrl;
@@ -45,11 +48,13 @@ public class GoogleUserCredentialProvider extends CredentialProvider {
 
 	protected final Time time;
 
-	protected long expiresTimestamp;
+	protected final CredentialStore store;
 
-	protected String tokenId;
+	protected volatile long expiresTimestamp;
 
-	protected String refreshToken;
+	protected volatile String tokenId;
+
+	protected volatile String refreshToken;
 
 	protected AuthInfo.Builder authbuilder;
 
@@ -64,11 +69,36 @@ public class GoogleUserCredentialProvider extends CredentialProvider {
 	 */
 	public GoogleUserCredentialProvider(OkHttpClient client, String refreshToken, Time time)
 			throws LoginFailedException, RemoteServerException {
+		this(client, refreshToken, time, null);
+	}
+
+	/**
+	 * Used for logging in when one has a persisted refreshToken, reusing the token kept in the store by a
+	 * previous run while it is valid.
+	 *
+	 * @param client       OkHttp client
+	 * @param refreshToken Refresh Token Persisted by user
+	 * @param time         a Time implementation
+	 * @param store        where the token is kept across restarts, or null
+	 * @throws LoginFailedException  When login fails
+	 * @throws RemoteServerException if the server failed to respond
+	 */
+	public GoogleUserCredentialProvider(OkHttpClient client, String refreshToken, Time time, CredentialStore store)
+			throws LoginFailedException, RemoteServerException {
 		this.time = time;
-		this.client = client;
+		this.client = HttpClientFactory.getDefault().share(client);
 		this.refreshToken = refreshToken;
-
-		refreshToken(refreshToken);
+		this.store = store;
+
+		setCredentialStore(store, "google:" + sha1(refreshToken));
+		StoredToken stored = restoreToken(time.currentTimeMillis());
+		if (stored != null) {
+			tokenId = stored.getTokenId();
+			expiresTimestamp = stored.getExpiresTimestamp();
+			scheduleRenewal(expiresTimestamp - time.currentTimeMillis());
+		} else {
+			refreshToken(refreshToken);
+		}
 		authbuilder = AuthInfo.newBuilder();
 	}
 
@@ -82,12 +112,7 @@ public class GoogleUserCredentialProvider extends CredentialProvider {
 	 */
 	public GoogleUserCredentialProvider(OkHttpClient client, String refreshToken)
 			throws LoginFailedException, RemoteServerException {
-		this.time = new SystemTimeImpl();
-		this.client = client;
-		this.refreshToken = refreshToken;
-
-		refreshToken(refreshToken);
-		authbuilder = AuthInfo.newBuilder();
+		this(client, refreshToken, new SystemTimeImpl(), null);
 	}
 
 	/**
@@ -100,8 +125,24 @@ public class GoogleUserCredentialProvider extends CredentialProvider {
 	 */
 	public GoogleUserCredentialProvider(OkHttpClient client, Time time)
 			throws LoginFailedException, RemoteServerException {
+		this(client, time, null);
+	}
+
+	/**
+	 * Used for logging in when you dont have a persisted refresh token, the token fetched by
+	 * {@link #login(String)} is kept in the store.
+	 *
+	 * @param client OkHttp client
+	 * @param time   a Time implementation
+	 * @param store  where the token is kept across restarts, or null
+	 * @throws LoginFailedException  When login fails
+	 * @throws RemoteServerException if the server failed to respond
+	 */
+	public GoogleUserCredentialProvider(OkHttpClient client, Time time, CredentialStore store)
+			throws LoginFailedException, RemoteServerException {
 		this.time = time;
-		this.client = client;
+		this.client = HttpClientFactory.getDefault().share(client);
+		this.store = store;
 	}
 
 	/**
@@ -113,8 +154,7 @@ public class GoogleUserCredentialProvider extends CredentialProvider {
 	 */
 	public GoogleUserCredentialProvider(OkHttpClient client)
 			throws LoginFailedException, RemoteServerException {
-		this.time = new SystemTimeImpl();
-		this.client = client;
+		this(client, new SystemTimeImpl(), null);
 	}
 
 
@@ -146,10 +186,9 @@ public class GoogleUserCredentialProvider extends CredentialProvider {
 		} catch (IOException e) {
 			throw new RemoteServerException("Network Request failed to fetch refreshed tokenId", e);
 		}
-		Moshi moshi = new Moshi.Builder().build();
 		GoogleAuthTokenJson googleAuthTokenJson = null;
 		try {
-			googleAuthTokenJson = moshi.adapter(GoogleAuthTokenJson.class).fromJson(response.body().string());
+			googleAuthTokenJson = AuthJson.read(AuthJson.googleAuthToken(), response.body());
 			Log.d(TAG, "" + googleAuthTokenJson.getExpiresIn());
 		} catch (IOException e) {
 			throw new RemoteServerException("Failed to unmarshal the Json response to fetch refreshed tokenId", e);
@@ -158,9 +197,11 @@ public class GoogleUserCredentialProvider extends CredentialProvider {
 			throw new LoginFailedException(googleAuthTokenJson.getError());
 		} else {
 			Log.d(TAG, "Refreshed Token " + googleAuthTokenJson.getIdToken());
+			tokenId = googleAuthTokenJson.getIdToken();
 			expiresTimestamp = time.currentTimeMillis()
 					+ (googleAuthTokenJson.getExpiresIn() * 1000 - REFRESH_TOKEN_BUFFER_TIME);
-			tokenId = googleAuthTokenJson.getIdToken();
+			storeToken(new StoredToken(tokenId, refreshToken, expiresTimestamp));
+			scheduleRenewal(expiresTimestamp - time.currentTimeMillis());
 		}
 	}
 
@@ -197,29 +238,37 @@ public class GoogleUserCredentialProvider extends CredentialProvider {
 			throw new RemoteServerException("Network Request failed to fetch tokenId", e);
 		}
 
-		Moshi moshi = new Moshi.Builder().build();
-
 		GoogleAuthTokenJson googleAuth = null;
 		try {
-			googleAuth = moshi.adapter(GoogleAuthTokenJson.class).fromJson(response.body().string());
+			googleAuth = AuthJson.read(AuthJson.googleAuthToken(), response.body());
 			Log.d(TAG, "" + googleAuth.getExpiresIn());
 		} catch (IOException e) {
 			throw new RemoteServerException("Failed to unmarshell the Json response to fetch tokenId", e);
 		}
 
-		expiresTimestamp = time.currentTimeMillis()
-				+ (googleAuth.getExpiresIn() * 1000 - REFRESH_TOKEN_BUFFER_TIME);
+		if (googleAuth.getError() != null) {
+			throw new LoginFailedException(googleAuth.getError());
+		}
+
 		tokenId = googleAuth.getIdToken();
 		refreshToken = googleAuth.getRefreshToken();
-		
+		expiresTimestamp = time.currentTimeMillis()
+				+ (googleAuth.getExpiresIn() * 1000 - REFRESH_TOKEN_BUFFER_TIME);
+
 		authbuilder = AuthInfo.newBuilder();
+		setCredentialStore(store, "google:" + sha1(refreshToken));
+		storeToken(new StoredToken(tokenId, refreshToken, expiresTimestamp));
+		scheduleRenewal(expiresTimestamp - time.currentTimeMillis());
+	}
+
+	@Override
+	protected void renewToken() throws LoginFailedException, RemoteServerException {
+		refreshToken(refreshToken);
 	}
 
 	@Override
 	public String getTokenId() throws LoginFailedException, RemoteServerException {
-		if (isTokenIdExpired()) {
-			refreshToken(refreshToken);
-		}
+		ensureToken(time.currentTimeMillis(), expiresTimestamp, REFRESH_TOKEN_BUFFER_TIME);
 		return tokenId;
 	}
 
@@ -232,9 +281,7 @@ public class GoogleUserCredentialProvider extends CredentialProvider {
 	 */
 	@Override
 	public AuthInfo getAuthInfo() throws LoginFailedException, RemoteServerException {
-		if (isTokenIdExpired()) {
-			refreshToken(refreshToken);
-		}
+		ensureToken(time.currentTimeMillis(), expiresTimestamp, REFRESH_TOKEN_BUFFER_TIME);
 		authbuilder.setProvider("google");
 		authbuilder.setToken(AuthInfo.JWT.newBuilder().setContents(tokenId).setUnknown2(59).build());
 		return authbuilder.build();
@@ -244,4 +291,20 @@ public class GoogleUserCredentialProvider extends CredentialProvider {
 	public boolean isTokenIdExpired() {
 		return time.currentTimeMillis() > expiresTimestamp;
 	}
+
+	/**
+	 * Store keys are derived from the refresh token without revealing it
+	 */
+	private static String sha1(String value) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes("UTF-8"));
+			StringBuilder hex = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
 }
@@ -17,9 +17,9 @@ package com.pogojava.pogojavaapi.pokegoapi.auth;
 
 import com.pogojava.pogojavaapi.pokegoapi.exceptions.LoginFailedException;
 import com.pogojava.pogojavaapi.pokegoapi.exceptions.RemoteServerException;
+import com.pogojava.pogojavaapi.pokegoapi.util.HttpClientFactory;
 import com.pogojava.pogojavaapi.pokegoapi.util.SystemTimeImpl;
 import com.pogojava.pogojavaapi.pokegoapi.util.Time;
-import com.squareup.moshi.Moshi;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -50,11 +50,12 @@ public class PtcCredentialProvider extends CredentialProvider {
 	protected static final long REFRESH_TOKEN_BUFFER_TIME = 5 * 60 * 1000;
 
 	protected final OkHttpClient client;
+	protected final OkHttpClient noRedirectClient;
 	protected final String username;
 	protected final String password;
 	protected final Time time;
-	protected String tokenId;
-	protected long expiresTimestamp;
+	protected volatile String tokenId;
+	protected volatile long expiresTimestamp;
 	protected AuthInfo.Builder authbuilder;
 
 	/**
@@ -69,6 +70,23 @@ public class PtcCredentialProvider extends CredentialProvider {
 	 */
 	public PtcCredentialProvider(OkHttpClient client, String username, String password, Time time)
 			throws LoginFailedException, RemoteServerException {
+		this(client, username, password, time, null);
+	}
+
+	/**
+	 * Instantiates a new Ptc login, reusing the token kept in the store by a previous run while it is valid.
+	 *
+	 * @param client   the client
+	 * @param username Username
+	 * @param password password
+	 * @param time     a Time implementation
+	 * @param store    where the token is kept across restarts, or null
+	 * @throws LoginFailedException  When login fails
+	 * @throws RemoteServerException When server fails
+	 */
+	public PtcCredentialProvider(OkHttpClient client, String username, String password, Time time,
+								 CredentialStore store)
+			throws LoginFailedException, RemoteServerException {
 		this.time = time;
 		this.username = username;
 		this.password = password;
@@ -92,7 +110,7 @@ public class PtcCredentialProvider extends CredentialProvider {
 			}
 		};
 
-		this.client = client.newBuilder()
+		this.client = HttpClientFactory.getDefault().share(client).newBuilder()
 				.cookieJar(tempJar)
 				.addInterceptor(new Interceptor() {
 					@Override
@@ -104,9 +122,22 @@ public class PtcCredentialProvider extends CredentialProvider {
 					}
 				})
 				.build();
+		// the login form answers with a redirect holding the ticket, which must not be followed
+		this.noRedirectClient = this.client.newBuilder()
+				.followRedirects(false)
+				.followSslRedirects(false)
+				.build();
 
 		authbuilder = AuthInfo.newBuilder();
-		login(username, password);
+		setCredentialStore(store, "ptc:" + username);
+		StoredToken stored = restoreToken(time.currentTimeMillis());
+		if (stored != null) {
+			tokenId = stored.getTokenId();
+			expiresTimestamp = stored.getExpiresTimestamp();
+			scheduleRenewal(expiresTimestamp - time.currentTimeMillis());
+		} else {
+			login(username, password);
+		}
 	}
 
 	/**
@@ -134,7 +165,6 @@ public class PtcCredentialProvider extends CredentialProvider {
 	 * @throws RemoteServerException if the server failed to respond
 	 */
 	private void login(String username, String password) throws LoginFailedException, RemoteServerException {
-		//TODO: stop creating an okhttp client per request
 		Request get = new Request.Builder()
 				.url(LOGIN_URL)
 				.get()
@@ -147,12 +177,9 @@ public class PtcCredentialProvider extends CredentialProvider {
 			throw new RemoteServerException("Failed to receive contents from server", e);
 		}
 
-		Moshi moshi = new Moshi.Builder().build();
-
 		PtcAuthJson ptcAuth;
 		try {
-			String response = getResponse.body().string();
-			ptcAuth = moshi.adapter(PtcAuthJson.class).fromJson(response);
+			ptcAuth = AuthJson.read(AuthJson.ptcAuth(), getResponse.body());
 		} catch (IOException e) {
 			throw new RemoteServerException("Looks like the servers are down", e);
 		}
@@ -172,36 +199,26 @@ public class PtcCredentialProvider extends CredentialProvider {
 				.method("POST", reqBody)
 				.build();
 
-		// Need a new client for this to not follow redirects
 		Response response;
 		try {
-			response = client.newBuilder()
-					.followRedirects(false)
-					.followSslRedirects(false)
-					.build()
-					.newCall(postRequest)
-					.execute();
+			response = noRedirectClient.newCall(postRequest).execute();
 		} catch (IOException e) {
 			throw new RemoteServerException("Network failure", e);
 		}
 
-		String body;
+		PtcError ptcError = null;
 		try {
-			body = response.body().string();
+			// a successful login answers with an empty body
+			if (!response.body().source().exhausted()) {
+				ptcError = AuthJson.read(AuthJson.ptcError(), response.body());
+			}
 		} catch (IOException e) {
-			throw new RemoteServerException("Response body fetching failed", e);
+			throw new RemoteServerException("Unmarshalling failure", e);
+		} finally {
+			response.body().close();
 		}
-
-		if (body.length() > 0) {
-			PtcError ptcError;
-			try {
-				ptcError = moshi.adapter(PtcError.class).fromJson(body);
-			} catch (IOException e) {
-				throw new RemoteServerException("Unmarshalling failure", e);
-			}
-			if (ptcError.getError() != null && ptcError.getError().length() > 0) {
-				throw new LoginFailedException(ptcError.getError());
-			}
+		if (ptcError != null && ptcError.getError() != null && ptcError.getError().length() > 0) {
+			throw new LoginFailedException(ptcError.getError());
 		}
 
 		String ticket = null;
@@ -213,7 +230,7 @@ public class PtcCredentialProvider extends CredentialProvider {
 		}
 
 		if (ticket == null) {
-			throw new LoginFailedException("Failed to fetch token, body:" + body);
+			throw new LoginFailedException("Failed to fetch token, no ticket in the login response");
 		}
 
 		url = HttpUrl.parse(LOGIN_OAUTH).newBuilder()
@@ -235,6 +252,7 @@ public class PtcCredentialProvider extends CredentialProvider {
 			throw new RemoteServerException("Network Failure ", e);
 		}
 
+		String body;
 		try {
 			body = response.body().string();
 		} catch (IOException e) {
@@ -250,13 +268,18 @@ public class PtcCredentialProvider extends CredentialProvider {
 		} catch (Exception e) {
 			throw new LoginFailedException("Failed to fetch token, body:" + body);
 		}
+		storeToken(new StoredToken(tokenId, null, expiresTimestamp));
+		scheduleRenewal(expiresTimestamp - time.currentTimeMillis());
+	}
+
+	@Override
+	protected void renewToken() throws LoginFailedException, RemoteServerException {
+		login(username, password);
 	}
 
 	@Override
 	public String getTokenId() throws LoginFailedException, RemoteServerException {
-		if (isTokenIdExpired()) {
-			login(username, password);
-		}
+		ensureToken(time.currentTimeMillis(), expiresTimestamp, REFRESH_TOKEN_BUFFER_TIME);
 		return tokenId;
 	}
 
@@ -269,9 +292,7 @@ public class PtcCredentialProvider extends CredentialProvider {
 	 */
 	@Override
 	public AuthInfo getAuthInfo() throws LoginFailedException, RemoteServerException {
-		if (isTokenIdExpired()) {
-			login(username, password);
-		}
+		ensureToken(time.currentTimeMillis(), expiresTimestamp, REFRESH_TOKEN_BUFFER_TIME);
 
 		authbuilder.setProvider("ptc");
 		authbuilder.setToken(AuthInfo.JWT.newBuilder().setContents(tokenId).setUnknown2(59).build());
@@ -0,0 +1,97 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.auth;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A token as kept in a {@link CredentialStore}.
+ */
+public class StoredToken {
+	private static final int VERSION = 1;
+
+	private final String tokenId;
+	private final String refreshToken;
+	private final long expiresTimestamp;
+
+	/**
+	 * Instantiates a stored token.
+	 *
+	 * @param tokenId          the token
+	 * @param refreshToken     the refresh token, or null if the provider has none
+	 * @param expiresTimestamp when the token should be renewed, in milliseconds
+	 */
+	public StoredToken(String tokenId, String refreshToken, long expiresTimestamp) {
+		this.tokenId = tokenId;
+		this.refreshToken = refreshToken;
+		this.expiresTimestamp = expiresTimestamp;
+	}
+
+	public String getTokenId() {
+		return tokenId;
+	}
+
+	public String getRefreshToken() {
+		return refreshToken;
+	}
+
+	public long getExpiresTimestamp() {
+		return expiresTimestamp;
+	}
+
+	/**
+	 * @return the token serialized for a store
+	 */
+	public byte[] toByteArray() {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream output = new DataOutputStream(bytes);
+			output.writeByte(VERSION);
+			output.writeUTF(tokenId);
+			output.writeBoolean(refreshToken != null);
+			if (refreshToken != null) {
+				output.writeUTF(refreshToken);
+			}
+			output.writeLong(expiresTimestamp);
+			output.flush();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Reads a token serialized with {@link #toByteArray()}.
+	 *
+	 * @param data the serialized token
+	 * @return the token
+	 * @throws IOException if the data is not a token of this version
+	 */
+	public static StoredToken parseFrom(byte[] data) throws IOException {
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+		if (input.readByte() != VERSION) {
+			throw new IOException("Unknown stored token version");
+		}
+		String tokenId = input.readUTF();
+		String refreshToken = input.readBoolean() ? input.readUTF() : null;
+		return new StoredToken(tokenId, refreshToken, input.readLong());
+	}
+}
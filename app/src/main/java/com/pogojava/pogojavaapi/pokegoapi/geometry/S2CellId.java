@@ -688,17 +688,17 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
    * j-coordinates (see s2.h).
    */
   public static S2CellId fromFaceIJ(int face, int i, int j) {
-    // Optimization notes:
-    // - Non-overlapping bit fields can be combined with either "+" or "|".
-    // Generally "+" seems to produce better code, but not always.
-
-    // gcc doesn't have very good code generation for 64-bit operations.
-    // We optimize this by computing the result as two 32-bit integers
-    // and combining them at the end. Declaring the result as an array
-    // rather than local variables helps the compiler to do a better job
-    // of register allocation as well. Note that the two 32-bits halves
-    // get shifted one bit to the left when they are combined.
-    long n[] = {0, face << (POS_BITS - 33)};
+    return new S2CellId(fromFaceIJId(face, i, j));
+  }
+
+  /**
+   * Same as fromFaceIJ(face, i, j).id() without allocating. The two 32-bit
+   * halves of the result are kept in locals instead of an array.
+   */
+  public static long fromFaceIJId(int face, int i, int j) {
+    final int mask = (1 << LOOKUP_BITS) - 1;
+    long n0 = 0;
+    long n1 = face << (POS_BITS - 33);
 
     // Alternating faces have opposite Hilbert curve orientations; this
     // is necessary in order for all faces to have a right-handed
@@ -710,25 +710,119 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
     // "iiiijjjjoo" to a 10-bit value of the form "ppppppppoo", where the
     // letters [ijpo] denote bits of "i", "j", Hilbert curve position, and
     // Hilbert curve orientation respectively.
-
     for (int k = 7; k >= 0; --k) {
-      bits = getBits(n, i, j, k, bits);
+      bits += (((i >> (k * LOOKUP_BITS)) & mask) << (LOOKUP_BITS + 2));
+      bits += (((j >> (k * LOOKUP_BITS)) & mask) << 2);
+      bits = LOOKUP_POS[bits];
+      long value = (((long) bits) >> 2) << ((k & 3) * 2 * LOOKUP_BITS);
+      if ((k >> 2) == 0) {
+        n0 |= value;
+      } else {
+        n1 |= value;
+      }
+      bits &= (SWAP_MASK | INVERT_MASK);
     }
 
-    S2CellId s = new S2CellId((((n[1] << 32) + n[0]) << 1) + 1);
-    return s;
+    return (((n1 << 32) + n0) << 1) + 1;
   }
 
-  private static int getBits(long[] n, int i, int j, int k, int bits) {
-    final int mask = (1 << LOOKUP_BITS) - 1;
-    bits += (((i >> (k * LOOKUP_BITS)) & mask) << (LOOKUP_BITS + 2));
-    bits += (((j >> (k * LOOKUP_BITS)) & mask) << 2);
-    bits = LOOKUP_POS[bits];
-    n[k >> 2] |= ((((long) bits) >> 2) << ((k & 3) * 2 * LOOKUP_BITS));
-    bits &= (SWAP_MASK | INVERT_MASK);
-    return bits;
+  /**
+   * Same as fromLatLng(S2LatLng.fromDegrees(latDegrees, lngDegrees)).id()
+   * without allocating.
+   */
+  public static long idFromDegrees(double latDegrees, double lngDegrees) {
+    double phi = latDegrees * (Math.PI / 180);
+    double theta = lngDegrees * (Math.PI / 180);
+    double cosphi = Math.cos(phi);
+    return idFromXyz(Math.cos(theta) * cosphi, Math.sin(theta) * cosphi, Math.sin(phi), true);
+  }
+
+  /**
+   * Return the cell id at the given level containing the given cell id.
+   */
+  public static long parentId(long id, int level) {
+    long newLsb = lowestOnBitForLevel(level);
+    return (id & -newLsb) | newLsb;
+  }
+
+  /**
+   * Same as toFaceIJOrientation(...) without allocating: the i- and
+   * j-coordinates are written to ij[0] and ij[1] and the face is returned.
+   */
+  public static int toFaceIJ(long id, int[] ij) {
+    int face = (int) (id >>> POS_BITS);
+    int bits = (face & SWAP_MASK);
+    int i = 0;
+    int j = 0;
+
+    for (int k = 7; k >= 0; --k) {
+      final int nbits = (k == 7) ? (MAX_LEVEL - 7 * LOOKUP_BITS) : LOOKUP_BITS;
+      bits += (((int) (id >>> (k * 2 * LOOKUP_BITS + 1)) &
+              ((1 << (2 * nbits)) - 1))) << 2;
+      bits = LOOKUP_IJ[bits];
+      i += (bits >> (LOOKUP_BITS + 2)) << (k * LOOKUP_BITS);
+      j += (((bits >> 2) & ((1 << LOOKUP_BITS) - 1))) << (k * LOOKUP_BITS);
+      bits &= (SWAP_MASK | INVERT_MASK);
+    }
+
+    ij[0] = i;
+    ij[1] = j;
+    return face;
   }
 
+  /**
+   * Leaf cell id containing the point (x, y, z). If project is false the
+   * face coordinates are used as (s,t) directly, which is only valid right
+   * at a face boundary.
+   */
+  private static long idFromXyz(double x, double y, double z, boolean project) {
+    double ax = Math.abs(x);
+    double ay = Math.abs(y);
+    double az = Math.abs(z);
+    int face;
+    if (ax > ay) {
+      face = ax > az ? 0 : 2;
+    } else {
+      face = ay > az ? 1 : 2;
+    }
+    if ((face == 0 ? x : face == 1 ? y : z) < 0) {
+      face += 3;
+    }
+
+    double pu;
+    double pv;
+    switch (face) {
+      case 0:
+        pu = y / x;
+        pv = z / x;
+        break;
+      case 1:
+        pu = -x / y;
+        pv = z / y;
+        break;
+      case 2:
+        pu = -x / z;
+        pv = -y / z;
+        break;
+      case 3:
+        pu = z / x;
+        pv = y / x;
+        break;
+      case 4:
+        pu = z / y;
+        pv = -x / y;
+        break;
+      default:
+        pu = -y / z;
+        pv = -x / z;
+        break;
+    }
+    if (project) {
+      pu = S2Projections.uvToST(pu);
+      pv = S2Projections.uvToST(pv);
+    }
+    return fromFaceIJId(face, stToIJ(pu), stToIJ(pv));
+  }
 
   /**
    * Return the (face, i, j) coordinates for the leaf cell corresponding to this
@@ -847,6 +941,13 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
    * returning the corresponding neighbor cell on an adjacent face.
    */
   private static S2CellId fromFaceIJWrap(int face, int i, int j) {
+    return new S2CellId(fromFaceIJWrapId(face, i, j));
+  }
+
+  /**
+   * Same as fromFaceIJWrap(face, i, j).id() without allocating.
+   */
+  public static long fromFaceIJWrapId(int face, int i, int j) {
     // Convert i and j to the coordinates of a leaf cell just beyond the
     // boundary of this face. This prevents 32-bit overflow in the case
     // of finding the neighbors of a face cell, and also means that we
@@ -862,10 +963,20 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
 
     // Find the leaf cell coordinates on the adjacent face, and convert
     // them to a cell id at the appropriate level.
-    S2Point p = S2Projections.faceUvToXyz(face, s, t);
-    face = S2Projections.xyzToFace(p);
-    R2Vector st = S2Projections.validFaceXyzToUv(face, p);
-    return fromFaceIJ(face, stToIJ(st.x()), stToIJ(st.y()));
+    switch (face) {
+      case 0:
+        return idFromXyz(1, s, t, false);
+      case 1:
+        return idFromXyz(-s, 1, t, false);
+      case 2:
+        return idFromXyz(-s, -t, 1, false);
+      case 3:
+        return idFromXyz(-1, -t, -s, false);
+      case 4:
+        return idFromXyz(t, -1, -s, false);
+      default:
+        return idFromXyz(t, s, -1, false);
+    }
   }
 
   /**
@@ -17,6 +17,7 @@ package com.pogojava.pogojavaapi.pokegoapi.main;
 
 import com.google.protobuf.ByteString;
 import com.google.protobuf.GeneratedMessage;
+import com.google.protobuf.Parser;
 import com.pogojava.pogojavaapi.pokegoapi.api.PokemonGo;
 import com.pogojava.pogojavaapi.pokegoapi.util.PokeAFunc;
 import com.pogojava.pogojavaapi.pokegoapi.util.PokeCallback;
@@ -32,42 +33,62 @@ import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
  */
 public class AsyncServerRequest<T extends GeneratedMessage, K> {
 	private final RequestType type;
-	private final Request request;
+	private final RequestPriority priority;
+	private final GeneratedMessage message;
+	private Request request;
 	final ArrayList<InternalServerRequest> boundedRequests = new ArrayList<>();
 
 	private final PokeCallback<K> callback;
 	private final PokeAFunc<T, K> func;
+	private final RequestHandler handler;
+	long queuedAt;
 
 	/**
-	 * Instantiates a new Server request.
+	 * Instantiates a new Server request, queued with the default priority of its type.
 	 *
 	 * @param type     the type
 	 * @param req      the req
 	 * @param func     internal func to handle data
 	 * @param callback an optional callback to handle results
 	 * @param api      the current instance of PokemonGo used to bound common requests
-	 * @param requests requests to bound in the same request envelope
+	 * @param requests requests to bound in the same request envelope, none to bound the stale common requests
 	 */
 	public AsyncServerRequest(RequestType type, GeneratedMessage req, PokeAFunc<T, K> func,
 							  PokeCallback<K> callback, PokemonGo api,
 							  InternalServerRequest... requests) {
-		Request.Builder reqBuilder = Request.newBuilder();
-		reqBuilder.setRequestMessage(req.toByteString());
-		reqBuilder.setRequestType(type);
+		this(type, req, func, callback, api, RequestPriority.of(type), requests);
+	}
+
+	/**
+	 * Instantiates a new Server request.
+	 *
+	 * @param type     the type
+	 * @param req      the req
+	 * @param func     internal func to handle data
+	 * @param callback an optional callback to handle results
+	 * @param api      the current instance of PokemonGo used to bound common requests
+	 * @param priority the lane of the request queue
+	 * @param requests requests to bound in the same request envelope, none to bound the stale common requests
+	 */
+	public AsyncServerRequest(RequestType type, GeneratedMessage req, PokeAFunc<T, K> func,
+							  PokeCallback<K> callback, PokemonGo api, RequestPriority priority,
+							  InternalServerRequest... requests) {
 		this.type = type;
-		this.request = reqBuilder.build();
+		this.priority = priority;
+		this.message = req;
 		this.callback = callback;
 		this.func = func;
+		this.handler = api.getRequestHandler();
 
 		if (requests != null) {
 			if (requests.length > 0) {
 				Collections.addAll(boundedRequests, requests);
 			} else {
-				Collections.addAll(boundedRequests, CommonRequest.getCommonRequests(api));
+				Collections.addAll(boundedRequests, api.getCommonRequestScheduler().getCommonRequests(type));
 			}
 		}
 
-		api.getRequestHandler().sendRequest(this);
+		handler.sendRequest(this);
 	}
 
 	/**
@@ -76,20 +97,29 @@ public class AsyncServerRequest<T extends GeneratedMessage, K> {
 	 * @param data the data
 	 */
 	public void fire(ByteString data) {
+		RequestMetrics metrics = handler.getMetrics();
+		long start = System.nanoTime();
 		K response = null;
 
 		if (func != null) {
 			try {
-				response = func.exec(data);
-			} catch (Throwable e) {
-				if (callback != null) {
-					callback.fire(e);
+				Parser<T> parser = ParserRegistry.get(type);
+				if (parser != null) {
+					response = func.exec(parser.parseFrom(data));
+				} else {
+					response = func.exec(data);
 				}
+			} catch (Throwable e) {
+				fire(e);
+				return;
 			}
 		}
 
+		long parsed = System.nanoTime();
+		metrics.onStage(type, RequestMetrics.Stage.PARSE, parsed - start);
 		if (callback != null) {
 			callback.fire(response);
+			metrics.onStage(type, RequestMetrics.Stage.CALLBACK, System.nanoTime() - parsed);
 		}
 	}
 
@@ -99,19 +129,46 @@ public class AsyncServerRequest<T extends GeneratedMessage, K> {
 	 * @param error the throwable exception
 	 */
 	public void fire(Throwable error) {
+		handler.getMetrics().onError(type, error);
 		if (callback != null) {
 			callback.fire(error);
 		}
 	}
 
+	/**
+	 * @return true if the callback was cancelled, the request is then dropped if it was not sent yet
+	 */
+	public boolean isCancelled() {
+		return callback != null && callback.isCancelled();
+	}
+
 	public RequestType getType() {
 		return type;
 	}
 
-	public Request getRequest() {
+	public RequestPriority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Gets the request, serializing the message the first time it is needed
+	 *
+	 * @return the request
+	 */
+	public synchronized Request getRequest() {
+		if (request == null) {
+			request = Request.newBuilder()
+					.setRequestMessage(message.toByteString())
+					.setRequestType(type)
+					.build();
+		}
 		return request;
 	}
 
+	public GeneratedMessage getMessage() {
+		return message;
+	}
+
 	public ArrayList<InternalServerRequest> getBoundedRequests() {
 		return boundedRequests;
 	}
@@ -0,0 +1,202 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs response callbacks and common request parsing off the http threads, and measures how long tasks wait
+ * in the queue and how long they run.
+ */
+public class CallbackExecutor implements Executor {
+	/**
+	 * Default number of callback threads.
+	 */
+	public static final int DEFAULT_THREADS = 4;
+
+	private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+
+	private final Executor executor;
+	private final boolean owned;
+
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicLong executed = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final AtomicLong totalRunNanos = new AtomicLong();
+	private final AtomicLong maxRunNanos = new AtomicLong();
+
+	private CallbackExecutor(Executor executor, boolean owned) {
+		this.executor = executor;
+		this.owned = owned;
+	}
+
+	/**
+	 * Creates an executor with up to the given number of threads, extra tasks are queued.
+	 * Idle threads stop after a minute.
+	 *
+	 * @param threads the maximum number of threads
+	 * @return the executor
+	 */
+	public static CallbackExecutor bounded(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1");
+		}
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new CallbackThreadFactory());
+		pool.allowCoreThreadTimeOut(true);
+		return new CallbackExecutor(pool, true);
+	}
+
+	/**
+	 * Creates an executor running callbacks one at a time, in the order the responses arrived.
+	 *
+	 * @return the executor
+	 */
+	public static CallbackExecutor serial() {
+		return bounded(1);
+	}
+
+	/**
+	 * Wraps an executor supplied by the caller, for example the one of the application.
+	 * It is never shut down by the api.
+	 *
+	 * @param executor the executor running the callbacks
+	 * @return the executor
+	 */
+	public static CallbackExecutor wrap(Executor executor) {
+		if (executor == null) {
+			throw new NullPointerException("Executor is null");
+		}
+		if (executor instanceof CallbackExecutor) {
+			return (CallbackExecutor) executor;
+		}
+		return new CallbackExecutor(executor, false);
+	}
+
+	@Override
+	public void execute(final Runnable command) {
+		final long submitted = System.nanoTime();
+		queued.incrementAndGet();
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				long started = System.nanoTime();
+				queued.decrementAndGet();
+				running.incrementAndGet();
+				try {
+					command.run();
+				} finally {
+					long finished = System.nanoTime();
+					running.decrementAndGet();
+					executed.incrementAndGet();
+					record(totalWaitNanos, maxWaitNanos, started - submitted);
+					record(totalRunNanos, maxRunNanos, finished - started);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Stops the threads once the queued callbacks ran, if the executor was created by the api.
+	 */
+	public void shutdown() {
+		if (owned) {
+			((ExecutorService) executor).shutdown();
+		}
+	}
+
+	/**
+	 * @return the number of callbacks waiting for a thread
+	 */
+	public int getQueueDepth() {
+		return queued.get();
+	}
+
+	/**
+	 * @return the number of callbacks running
+	 */
+	public int getActiveCount() {
+		return running.get();
+	}
+
+	/**
+	 * @return the number of callbacks that ran
+	 */
+	public long getExecutedCount() {
+		return executed.get();
+	}
+
+	/**
+	 * @return the average time in milliseconds a callback waited before running
+	 */
+	public double getAverageQueueLatency() {
+		return average(totalWaitNanos);
+	}
+
+	/**
+	 * @return the longest time in milliseconds a callback waited before running
+	 */
+	public double getMaxQueueLatency() {
+		return maxWaitNanos.get() / 1000000.0;
+	}
+
+	/**
+	 * @return the average time in milliseconds a callback ran
+	 */
+	public double getAverageRunTime() {
+		return average(totalRunNanos);
+	}
+
+	/**
+	 * @return the longest time in milliseconds a callback ran
+	 */
+	public double getMaxRunTime() {
+		return maxRunNanos.get() / 1000000.0;
+	}
+
+	private double average(AtomicLong totalNanos) {
+		long count = executed.get();
+		return count == 0 ? 0 : totalNanos.get() / 1000000.0 / count;
+	}
+
+	private static void record(AtomicLong total, AtomicLong max, long nanos) {
+		total.addAndGet(nanos);
+		long current = max.get();
+		while (nanos > current && !max.compareAndSet(current, nanos)) {
+			current = max.get();
+		}
+	}
+
+	private static class CallbackThreadFactory implements ThreadFactory {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "Callback Thread " + THREAD_IDS.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
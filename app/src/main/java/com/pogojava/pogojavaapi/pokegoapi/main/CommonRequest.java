@@ -31,7 +31,7 @@ import POGOProtos.Networking.Requests.Messages.GetBuddyWalked;
 import POGOProtos.Networking.Requests.Messages.GetHatchedEggsMessageOuterClass.GetHatchedEggsMessage;
 import POGOProtos.Networking.Requests.Messages.GetInventoryMessageOuterClass.GetInventoryMessage;
 import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
-import POGOProtos.Networking.Responses.CheckChallengeResponseOuterClass;
+import POGOProtos.Networking.Responses.CheckChallengeResponseOuterClass.CheckChallengeResponse;
 import POGOProtos.Networking.Responses.DownloadSettingsResponseOuterClass.DownloadSettingsResponse;
 import POGOProtos.Networking.Responses.GetInventoryResponseOuterClass.GetInventoryResponse;
 
@@ -40,6 +40,18 @@ import POGOProtos.Networking.Responses.GetInventoryResponseOuterClass.GetInvento
  */
 public class CommonRequest {
 
+	/**
+	 * The requests bounded by default to every request, in the order they are sent
+	 */
+	public static final RequestType[] COMMON_TYPES = {
+			RequestType.CHECK_CHALLENGE,
+			RequestType.GET_HATCHED_EGGS,
+			RequestType.GET_INVENTORY,
+			RequestType.CHECK_AWARDED_BADGES,
+			RequestType.DOWNLOAD_SETTINGS,
+			RequestType.GET_BUDDY_WALKED
+	};
+
 	/**
 	 * Constant for repetitive usage of DownloadRemoteConfigVersionMessage request
 	 *
@@ -113,19 +125,42 @@ public class CommonRequest {
 	 * @return a List of AsyncServerRequests
 	 */
 	public static InternalServerRequest[] getCommonRequests(PokemonGo api) {
-		return new InternalServerRequest[] {
-				getDefaultCheckChallenge(),
-				new InternalServerRequest(RequestType.GET_HATCHED_EGGS,
-						GetHatchedEggsMessage.getDefaultInstance()),
-				new InternalServerRequest(RequestType.GET_INVENTORY,
-						CommonRequest.getDefaultGetInventoryMessage(api)),
-				new InternalServerRequest(RequestType.CHECK_AWARDED_BADGES,
-						CheckAwardedBadgesMessage.getDefaultInstance()),
-				new InternalServerRequest(RequestType.DOWNLOAD_SETTINGS,
-						CommonRequest.getDefaultDownloadSettingsMessageRequest(api)),
-				new InternalServerRequest(RequestType.GET_BUDDY_WALKED,
-						CommonRequest.getDefaultBuddyWalked(api))
-		};
+		InternalServerRequest[] requests = new InternalServerRequest[COMMON_TYPES.length];
+		for (int i = 0; i < COMMON_TYPES.length; i++) {
+			requests[i] = getCommonRequest(api, COMMON_TYPES[i]);
+		}
+		return requests;
+	}
+
+	/**
+	 * Build the internal server request of a common request
+	 *
+	 * @param api  The current instance of PokemonGO
+	 * @param type one of the COMMON_TYPES
+	 * @return the request
+	 */
+	public static InternalServerRequest getCommonRequest(PokemonGo api, RequestType type) {
+		switch (type) {
+			case CHECK_CHALLENGE:
+				return getDefaultCheckChallenge();
+			case GET_HATCHED_EGGS:
+				return new InternalServerRequest(RequestType.GET_HATCHED_EGGS,
+						GetHatchedEggsMessage.getDefaultInstance());
+			case GET_INVENTORY:
+				return new InternalServerRequest(RequestType.GET_INVENTORY,
+						CommonRequest.getDefaultGetInventoryMessage(api));
+			case CHECK_AWARDED_BADGES:
+				return new InternalServerRequest(RequestType.CHECK_AWARDED_BADGES,
+						CheckAwardedBadgesMessage.getDefaultInstance());
+			case DOWNLOAD_SETTINGS:
+				return new InternalServerRequest(RequestType.DOWNLOAD_SETTINGS,
+						CommonRequest.getDefaultDownloadSettingsMessageRequest(api));
+			case GET_BUDDY_WALKED:
+				return new InternalServerRequest(RequestType.GET_BUDDY_WALKED,
+						CommonRequest.getDefaultBuddyWalked(api));
+			default:
+				throw new IllegalArgumentException(type + " is not a common request");
+		}
 	}
 
 	/**
@@ -139,8 +174,7 @@ public class CommonRequest {
 		try {
 			switch (requestType) {
 				case CHECK_CHALLENGE:
-					CheckChallengeResponseOuterClass.CheckChallengeResponse checkChallengeResponse =
-							CheckChallengeResponseOuterClass.CheckChallengeResponse.parseFrom(data);
+					CheckChallengeResponse checkChallengeResponse = ParserRegistry.parse(requestType, data);
 					if (checkChallengeResponse.getShowChallenge()) {
 						api.setInCheckChallend(true);
 						if (api.getOnCheckChallengeRequestListener() != null) {
@@ -149,16 +183,19 @@ public class CommonRequest {
 					}
 					break;
 				case GET_INVENTORY:
-					api.getInventories().updateInventories(GetInventoryResponse.parseFrom(data));
+					api.getInventories().updateInventories(
+							ParserRegistry.<GetInventoryResponse>parse(requestType, data));
 					break;
 				case DOWNLOAD_SETTINGS:
-					api.getSettings().updateSettings(DownloadSettingsResponse.parseFrom(data));
+					api.getSettings().updateSettings(
+							ParserRegistry.<DownloadSettingsResponse>parse(requestType, data));
 					break;
 				case CHECK_AWARDED_BADGES:
 				//	api.getPlayerProfile().equipBadge(CheckAwardedBadgesResponse.parseFrom(data));
 				default:
 					break;
 			}
+			api.getCommonRequestScheduler().onRefreshed(requestType);
 		} catch (InvalidProtocolBufferException e) {
 			throw new AsyncRemoteServerException(e);
 		}
@@ -0,0 +1,203 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import com.pogojava.pogojavaapi.pokegoapi.api.PokemonGo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
+
+/**
+ * Decides which common requests are bounded to a request.
+ * Each common request is sent again only once its refresh interval elapsed since it was last sent or parsed,
+ * the inventory is also refreshed after every request which may change it.
+ */
+public class CommonRequestScheduler {
+	public static final long DEFAULT_INVENTORY_INTERVAL = 10 * 1000;
+	public static final long DEFAULT_HATCHED_EGGS_INTERVAL = 10 * 1000;
+	public static final long DEFAULT_AWARDED_BADGES_INTERVAL = 60 * 1000;
+	public static final long DEFAULT_BUDDY_WALKED_INTERVAL = 60 * 1000;
+	public static final long DEFAULT_SETTINGS_INTERVAL = 5 * 60 * 1000;
+
+	private final PokemonGo api;
+	private final Map<RequestType, Entry> entries = new EnumMap<>(RequestType.class);
+
+	/**
+	 * Instantiates a new scheduler with the default intervals
+	 *
+	 * @param api the current instance of PokemonGo
+	 */
+	public CommonRequestScheduler(PokemonGo api) {
+		this.api = api;
+		for (RequestType type : CommonRequest.COMMON_TYPES) {
+			entries.put(type, new Entry());
+		}
+		entries.get(RequestType.GET_INVENTORY).interval = DEFAULT_INVENTORY_INTERVAL;
+		entries.get(RequestType.GET_HATCHED_EGGS).interval = DEFAULT_HATCHED_EGGS_INTERVAL;
+		entries.get(RequestType.CHECK_AWARDED_BADGES).interval = DEFAULT_AWARDED_BADGES_INTERVAL;
+		entries.get(RequestType.GET_BUDDY_WALKED).interval = DEFAULT_BUDDY_WALKED_INTERVAL;
+		entries.get(RequestType.DOWNLOAD_SETTINGS).interval = DEFAULT_SETTINGS_INTERVAL;
+	}
+
+	/**
+	 * Gets the common requests to bound to a request of the given type
+	 *
+	 * @param primary the type of the request the common requests are bounded to
+	 * @return the stale common requests
+	 */
+	public InternalServerRequest[] getCommonRequests(RequestType primary) {
+		long now = api.currentTimeMillis();
+		List<InternalServerRequest> requests = new ArrayList<>(entries.size());
+		for (RequestType type : CommonRequest.COMMON_TYPES) {
+			Entry entry = entries.get(type);
+			if (type != primary && isStale(type, entry, primary, now)) {
+				entry.lastRequested = now;
+				entry.attached.incrementAndGet();
+				requests.add(CommonRequest.getCommonRequest(api, type));
+			} else {
+				entry.skipped.incrementAndGet();
+			}
+		}
+		return requests.toArray(new InternalServerRequest[requests.size()]);
+	}
+
+	private boolean isStale(RequestType type, Entry entry, RequestType primary, long now) {
+		switch (type) {
+			case GET_INVENTORY:
+				if (!RequestTypes.isReadOnly(primary)) {
+					return true;
+				}
+				break;
+			case DOWNLOAD_SETTINGS:
+				if (api.getSettings() == null || api.getSettings().getHash().isEmpty()) {
+					return true;
+				}
+				break;
+			default:
+				break;
+		}
+		return now - Math.max(entry.lastRequested, entry.lastRefreshed) >= entry.interval;
+	}
+
+	/**
+	 * Called once the response of a common request has been parsed
+	 *
+	 * @param type the type of the common request
+	 */
+	public void onRefreshed(RequestType type) {
+		Entry entry = entries.get(type);
+		if (entry != null) {
+			entry.lastRefreshed = api.currentTimeMillis();
+			entry.refreshed.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Called when common requests bounded to a request were not sent or got no response, because the request
+	 * was dropped, shared the response of an identical one or failed. They are bounded again to the next request.
+	 *
+	 * @param requests the common requests
+	 */
+	public void onDropped(Collection<InternalServerRequest> requests) {
+		for (InternalServerRequest request : requests) {
+			Entry entry = entries.get(request.getType());
+			if (entry != null) {
+				entry.lastRequested = 0;
+			}
+		}
+	}
+
+	/**
+	 * Forces the given common request to be bounded to the next request
+	 *
+	 * @param type the type of the common request
+	 */
+	public void invalidate(RequestType type) {
+		Entry entry = entries.get(type);
+		if (entry != null) {
+			entry.lastRequested = 0;
+			entry.lastRefreshed = 0;
+		}
+	}
+
+	/**
+	 * Sets the minimum time between two refreshes of a common request
+	 *
+	 * @param type     the type of the common request
+	 * @param interval the interval in milliseconds, 0 to bound it to every request
+	 */
+	public void setRefreshInterval(RequestType type, long interval) {
+		Entry entry = entries.get(type);
+		if (entry == null) {
+			throw new IllegalArgumentException(type + " is not a common request");
+		}
+		entry.interval = interval;
+	}
+
+	public long getRefreshInterval(RequestType type) {
+		Entry entry = entries.get(type);
+		return entry != null ? entry.interval : -1;
+	}
+
+	/**
+	 * Gets how many times the common request has been bounded to a request
+	 *
+	 * @param type the type of the common request
+	 * @return the count
+	 */
+	public long getAttachedCount(RequestType type) {
+		Entry entry = entries.get(type);
+		return entry != null ? entry.attached.get() : 0;
+	}
+
+	/**
+	 * Gets how many times the common request has been left out because it was still fresh
+	 *
+	 * @param type the type of the common request
+	 * @return the count
+	 */
+	public long getSkippedCount(RequestType type) {
+		Entry entry = entries.get(type);
+		return entry != null ? entry.skipped.get() : 0;
+	}
+
+	/**
+	 * Gets how many responses of the common request have been parsed
+	 *
+	 * @param type the type of the common request
+	 * @return the count
+	 */
+	public long getRefreshedCount(RequestType type) {
+		Entry entry = entries.get(type);
+		return entry != null ? entry.refreshed.get() : 0;
+	}
+
+	private static class Entry {
+		volatile long interval;
+		volatile long lastRequested;
+		volatile long lastRefreshed;
+		final AtomicLong attached = new AtomicLong();
+		final AtomicLong skipped = new AtomicLong();
+		final AtomicLong refreshed = new AtomicLong();
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Identical requests waiting for the same response. The first one is sent, the next ones share its response
+ * until it comes.
+ *
+ * @param <K> what identifies identical requests
+ * @param <E> the requests
+ */
+abstract class DuplicateRequests<K, E> {
+	private final HashMap<K, List<E>> duplicates = new HashMap<>();
+	private long deduplicatedCount;
+
+	/**
+	 * @param request a request
+	 * @return true if nobody waits for the response of the request anymore
+	 */
+	abstract boolean isCancelled(E request);
+
+	/**
+	 * Registers a request about to be queued.
+	 *
+	 * @param key     what identifies the request
+	 * @param request the request
+	 * @return true if an identical request is already queued or in flight, the request then waits for its
+	 * response instead of being queued
+	 */
+	synchronized boolean join(K key, E request) {
+		List<E> waiting = duplicates.get(key);
+		if (waiting != null) {
+			waiting.add(request);
+			deduplicatedCount++;
+			return true;
+		}
+		duplicates.put(key, new ArrayList<E>());
+		return false;
+	}
+
+	/**
+	 * Removes a request which got its response, later identical requests will be sent again.
+	 *
+	 * @param key what identifies the request
+	 * @return the identical requests waiting for the same response
+	 */
+	synchronized List<E> take(K key) {
+		List<E> waiting = duplicates.remove(key);
+		return waiting == null ? Collections.<E>emptyList() : waiting;
+	}
+
+	/**
+	 * Checks whether a cancelled request can be dropped: the callbacks of its duplicates were all cancelled too.
+	 * The request is then removed, later identical requests will be sent again.
+	 *
+	 * @param key what identifies the cancelled request
+	 * @return true if nobody waits for the response anymore
+	 */
+	synchronized boolean dropIfAbandoned(K key) {
+		List<E> waiting = duplicates.get(key);
+		if (waiting != null) {
+			for (E duplicate : waiting) {
+				if (!isCancelled(duplicate)) {
+					return false;
+				}
+			}
+		}
+		duplicates.remove(key);
+		return true;
+	}
+
+	/**
+	 * @return the number of requests which joined an identical one
+	 */
+	synchronized long getDeduplicatedCount() {
+		return deduplicatedCount;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import java.util.Random;
+
+/**
+ * Retries a limited number of times, doubling the delay each time. Half of each delay is random so clients
+ * failing together do not retry together.
+ */
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+	public static final int DEFAULT_MAX_RETRIES = 2;
+	public static final long DEFAULT_BASE_DELAY = 500;
+	public static final long DEFAULT_MAX_DELAY = 8000;
+
+	private final int maxRetries;
+	private final long baseDelay;
+	private final long maxDelay;
+	private final Random random = new Random();
+
+	/**
+	 * Instantiates a policy with the default retries and delays
+	 */
+	public ExponentialBackoffRetryPolicy() {
+		this(DEFAULT_MAX_RETRIES, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY);
+	}
+
+	/**
+	 * Instantiates a policy
+	 *
+	 * @param maxRetries the maximum number of retries, 0 to never retry
+	 * @param baseDelay  the delay in milliseconds before the first retry
+	 * @param maxDelay   the maximum delay in milliseconds
+	 */
+	public ExponentialBackoffRetryPolicy(int maxRetries, long baseDelay, long maxDelay) {
+		if (maxRetries < 0 || baseDelay < 0 || maxDelay < baseDelay) {
+			throw new IllegalArgumentException("Invalid retries or delays");
+		}
+		this.maxRetries = maxRetries;
+		this.baseDelay = baseDelay;
+		this.maxDelay = maxDelay;
+	}
+
+	@Override
+	public long getRetryDelay(int attempt) {
+		if (attempt > maxRetries) {
+			return -1;
+		}
+		long delay = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 30));
+		long half = delay / 2;
+		synchronized (random) {
+			return half + (long) (random.nextDouble() * (delay - half));
+		}
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+}
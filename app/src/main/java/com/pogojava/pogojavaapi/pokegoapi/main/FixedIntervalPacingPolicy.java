@@ -0,0 +1,58 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+/**
+ * Keeps a minimum interval between the end of an exchange and the next envelope, like the fixed sleep after
+ * each response it replaces.
+ */
+public class FixedIntervalPacingPolicy implements PacingPolicy {
+	public static final long DEFAULT_INTERVAL = 350;
+
+	private final long interval;
+
+	/**
+	 * Instantiates a policy with the default interval
+	 */
+	public FixedIntervalPacingPolicy() {
+		this(DEFAULT_INTERVAL);
+	}
+
+	/**
+	 * Instantiates a policy with the given interval
+	 *
+	 * @param interval minimum time in milliseconds before the next envelope, 0 to disable pacing
+	 */
+	public FixedIntervalPacingPolicy(long interval) {
+		if (interval < 0) {
+			throw new IllegalArgumentException("interval can not be negative");
+		}
+		this.interval = interval;
+	}
+
+	@Override
+	public long getDelay(long lastExchangeMs, long nowMs) {
+		if (lastExchangeMs <= 0) {
+			return 0;
+		}
+		return lastExchangeMs + interval - nowMs;
+	}
+
+	public long getInterval() {
+		return interval;
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import com.pogojava.pogojavaapi.pokegoapi.util.LatencyHistogram;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
+
+/**
+ * Keeps per request type latency histograms of every stage, plus byte, redirect and error counters,
+ * to be read by the application.
+ */
+public class InMemoryRequestMetrics implements RequestMetrics {
+	private final ConcurrentHashMap<RequestType, TypeMetrics> types = new ConcurrentHashMap<>();
+	private final AtomicLong bytesOut = new AtomicLong();
+	private final AtomicLong bytesIn = new AtomicLong();
+	private final AtomicLong envelopes = new AtomicLong();
+	private final AtomicLong redirects = new AtomicLong();
+	private final AtomicLong retries = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+
+	@Override
+	public void onStage(RequestType type, Stage stage, long nanos) {
+		get(type).stages[stage.ordinal()].recordNanos(nanos);
+	}
+
+	@Override
+	public void onBytesSent(long bytes) {
+		envelopes.incrementAndGet();
+		bytesOut.addAndGet(bytes);
+	}
+
+	@Override
+	public void onBytesReceived(long bytes) {
+		bytesIn.addAndGet(bytes);
+	}
+
+	@Override
+	public void onRedirect() {
+		redirects.incrementAndGet();
+	}
+
+	@Override
+	public void onRetry(RequestType type) {
+		retries.incrementAndGet();
+		get(type).retries.incrementAndGet();
+	}
+
+	@Override
+	public void onError(RequestType type, Throwable error) {
+		errors.incrementAndGet();
+		if (type != null) {
+			get(type).errors.incrementAndGet();
+		}
+	}
+
+	/**
+	 * @return the request types seen so far
+	 */
+	public Set<RequestType> getRequestTypes() {
+		if (types.isEmpty()) {
+			return Collections.emptySet();
+		}
+		return EnumSet.copyOf(types.keySet());
+	}
+
+	/**
+	 * Returns the latency histogram of a stage, in microseconds.
+	 *
+	 * @param type  the request type
+	 * @param stage the stage
+	 * @return the histogram
+	 */
+	public LatencyHistogram getHistogram(RequestType type, Stage stage) {
+		return get(type).stages[stage.ordinal()];
+	}
+
+	/**
+	 * @param type the request type
+	 * @return the number of requests of the type which were sent
+	 */
+	public long getRequestCount(RequestType type) {
+		return getHistogram(type, Stage.QUEUE).getCount();
+	}
+
+	/**
+	 * @param type the request type
+	 * @return the number of requests of the type which failed
+	 */
+	public long getErrorCount(RequestType type) {
+		return get(type).errors.get();
+	}
+
+	/**
+	 * @param type the request type
+	 * @return the number of times a request of the type was sent again
+	 */
+	public long getRetryCount(RequestType type) {
+		return get(type).retries.get();
+	}
+
+	public long getRetryCount() {
+		return retries.get();
+	}
+
+	/**
+	 * @return the number of errors, including the ones not tied to a request
+	 */
+	public long getErrorCount() {
+		return errors.get();
+	}
+
+	/**
+	 * @return the number of envelopes sent, redirects included
+	 */
+	public long getEnvelopeCount() {
+		return envelopes.get();
+	}
+
+	public long getBytesOut() {
+		return bytesOut.get();
+	}
+
+	public long getBytesIn() {
+		return bytesIn.get();
+	}
+
+	public long getRedirectCount() {
+		return redirects.get();
+	}
+
+	/**
+	 * Clears every histogram and counter.
+	 */
+	public void reset() {
+		types.clear();
+		bytesOut.set(0);
+		bytesIn.set(0);
+		envelopes.set(0);
+		redirects.set(0);
+		retries.set(0);
+		errors.set(0);
+	}
+
+	/**
+	 * @return one line per request type and stage with count, mean, median, 99th percentile and max in ms
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format(Locale.US, "envelopes=%d out=%dB in=%dB redirects=%d retries=%d errors=%d%n",
+				getEnvelopeCount(), getBytesOut(), getBytesIn(), getRedirectCount(), getRetryCount(),
+				getErrorCount()));
+		for (RequestType type : getRequestTypes()) {
+			for (Stage stage : Stage.values()) {
+				LatencyHistogram histogram = getHistogram(type, stage);
+				if (histogram.getCount() == 0) {
+					continue;
+				}
+				builder.append(String.format(Locale.US, "%s %s count=%d mean=%.2f p50=%.2f p99=%.2f max=%.2f%n",
+						type, stage, histogram.getCount(), histogram.getMean() / 1000,
+						histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+						histogram.getMax() / 1000.0));
+			}
+		}
+		return builder.toString();
+	}
+
+	private TypeMetrics get(RequestType type) {
+		TypeMetrics metrics = types.get(type);
+		if (metrics == null) {
+			metrics = new TypeMetrics();
+			TypeMetrics previous = types.putIfAbsent(type, metrics);
+			if (previous != null) {
+				metrics = previous;
+			}
+		}
+		return metrics;
+	}
+
+	private static final class TypeMetrics {
+		private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+		private final AtomicLong errors = new AtomicLong();
+		private final AtomicLong retries = new AtomicLong();
+
+		private TypeMetrics() {
+			for (int i = 0; i < stages.length; i++) {
+				stages[i] = new LatencyHistogram();
+			}
+		}
+	}
+}
@@ -14,6 +14,7 @@ import POGOProtos.Networking.Requests.RequestTypeOuterClass;
 public class InternalServerRequest {
 
 	RequestOuterClass.Request request;
+	private final GeneratedMessage message;
 	private RequestTypeOuterClass.RequestType type;
 	private ByteString data;
 
@@ -24,10 +25,7 @@ public class InternalServerRequest {
 	 * @param req  the req
 	 */
 	protected InternalServerRequest(RequestTypeOuterClass.RequestType type, GeneratedMessage req) {
-		RequestOuterClass.Request.Builder reqBuilder = RequestOuterClass.Request.newBuilder();
-		reqBuilder.setRequestMessage(req.toByteString());
-		reqBuilder.setRequestType(type);
-		this.request = reqBuilder.build();
+		this.message = req;
 		this.type = type;
 	}
 
@@ -39,6 +37,7 @@ public class InternalServerRequest {
 	 */
 	InternalServerRequest(RequestTypeOuterClass.RequestType type, RequestOuterClass.Request request) {
 		this.request = request;
+		this.message = null;
 		this.type = type;
 	}
 
@@ -64,7 +63,18 @@ public class InternalServerRequest {
 		return data;
 	}
 
-	public RequestOuterClass.Request getRequest() {
+	/**
+	 * Gets the request, serializing the message the first time it is needed
+	 *
+	 * @return the request
+	 */
+	public synchronized RequestOuterClass.Request getRequest() {
+		if (request == null) {
+			request = RequestOuterClass.Request.newBuilder()
+					.setRequestMessage(message.toByteString())
+					.setRequestType(type)
+					.build();
+		}
 		return request;
 	}
 
@@ -0,0 +1,141 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.UnsafeByteOperations;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import POGOProtos.Networking.Envelopes.AuthTicketOuterClass.AuthTicket;
+import POGOProtos.Networking.Envelopes.ResponseEnvelopeOuterClass.ResponseEnvelope;
+import POGOProtos.Networking.Envelopes.ResponseEnvelopeOuterClass.ResponseEnvelope.StatusCode;
+
+/**
+ * A ResponseEnvelope decoded field by field.
+ * Returned payloads are kept as slices of the received buffer, without being copied nor parsed,
+ * until the request owning them asks for their content. Platform returns are skipped.
+ */
+public class LazyResponseEnvelope {
+	private static final int STATUS_CODE_TAG = tag(ResponseEnvelope.STATUS_CODE_FIELD_NUMBER, 0);
+	private static final int REQUEST_ID_TAG = tag(ResponseEnvelope.REQUEST_ID_FIELD_NUMBER, 0);
+	private static final int API_URL_TAG = tag(ResponseEnvelope.API_URL_FIELD_NUMBER, 2);
+	private static final int AUTH_TICKET_TAG = tag(ResponseEnvelope.AUTH_TICKET_FIELD_NUMBER, 2);
+	private static final int RETURNS_TAG = tag(ResponseEnvelope.RETURNS_FIELD_NUMBER, 2);
+	private static final int ERROR_TAG = tag(ResponseEnvelope.ERROR_FIELD_NUMBER, 2);
+
+	private int statusCode;
+	private long requestId;
+	private String apiUrl = "";
+	private AuthTicket authTicket;
+	private String error = "";
+	private List<ByteString> returns = Collections.emptyList();
+
+	private LazyResponseEnvelope() {
+	}
+
+	private static int tag(int fieldNumber, int wireType) {
+		return (fieldNumber << 3) | wireType;
+	}
+
+	/**
+	 * Decodes an envelope. The array is wrapped, not copied, and must not be modified afterwards.
+	 *
+	 * @param data the serialized envelope
+	 * @return the envelope
+	 * @throws IOException if the data is not a valid envelope
+	 */
+	public static LazyResponseEnvelope parseFrom(byte[] data) throws IOException {
+		CodedInputStream input = UnsafeByteOperations.unsafeWrap(ByteBuffer.wrap(data)).newCodedInput();
+		input.enableAliasing(true);
+
+		LazyResponseEnvelope envelope = new LazyResponseEnvelope();
+		while (true) {
+			int tag = input.readTag();
+			if (tag == 0) {
+				break;
+			} else if (tag == STATUS_CODE_TAG) {
+				envelope.statusCode = input.readEnum();
+			} else if (tag == REQUEST_ID_TAG) {
+				envelope.requestId = input.readUInt64();
+			} else if (tag == API_URL_TAG) {
+				envelope.apiUrl = input.readStringRequireUtf8();
+			} else if (tag == AUTH_TICKET_TAG) {
+				envelope.authTicket = input.readMessage(AuthTicket.parser(),
+						ExtensionRegistryLite.getEmptyRegistry());
+			} else if (tag == RETURNS_TAG) {
+				if (envelope.returns.isEmpty()) {
+					envelope.returns = new ArrayList<>();
+				}
+				envelope.returns.add(input.readBytes());
+			} else if (tag == ERROR_TAG) {
+				envelope.error = input.readStringRequireUtf8();
+			} else if (!input.skipField(tag)) {
+				break;
+			}
+		}
+		return envelope;
+	}
+
+	public StatusCode getStatusCode() {
+		StatusCode code = StatusCode.forNumber(statusCode);
+		return code != null ? code : StatusCode.UNRECOGNIZED;
+	}
+
+	public int getStatusCodeValue() {
+		return statusCode;
+	}
+
+	public long getRequestId() {
+		return requestId;
+	}
+
+	public String getApiUrl() {
+		return apiUrl;
+	}
+
+	public boolean hasAuthTicket() {
+		return authTicket != null;
+	}
+
+	public AuthTicket getAuthTicket() {
+		return authTicket != null ? authTicket : AuthTicket.getDefaultInstance();
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * Gets the returned payloads, in the same order as the requests
+	 *
+	 * @return the unparsed payloads
+	 */
+	public List<ByteString> getReturnsList() {
+		return returns;
+	}
+
+	public int getReturnsCount() {
+		return returns.size();
+	}
+}
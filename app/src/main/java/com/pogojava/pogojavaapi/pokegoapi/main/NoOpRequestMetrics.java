@@ -0,0 +1,53 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
+
+/**
+ * Metrics ignoring everything, the default of the RequestHandler.
+ */
+public final class NoOpRequestMetrics implements RequestMetrics {
+	public static final NoOpRequestMetrics INSTANCE = new NoOpRequestMetrics();
+
+	private NoOpRequestMetrics() {
+	}
+
+	@Override
+	public void onStage(RequestType type, Stage stage, long nanos) {
+	}
+
+	@Override
+	public void onBytesSent(long bytes) {
+	}
+
+	@Override
+	public void onBytesReceived(long bytes) {
+	}
+
+	@Override
+	public void onRedirect() {
+	}
+
+	@Override
+	public void onRetry(RequestType type) {
+	}
+
+	@Override
+	public void onError(RequestType type, Throwable error) {
+	}
+}
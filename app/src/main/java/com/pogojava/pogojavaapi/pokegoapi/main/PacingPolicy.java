@@ -0,0 +1,32 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+/**
+ * Decides how long the RequestHandler waits before sending the next envelope.
+ */
+public interface PacingPolicy {
+	/**
+	 * Gets the delay to apply before the next envelope is sent.
+	 *
+	 * @param lastExchangeMs the time the previous exchange ended, its response handled or its failure reported,
+	 *                       or the time the previous envelope was sent if that came later, 0 if none was sent yet
+	 * @param nowMs          the current time
+	 * @return the delay in milliseconds, 0 or less to send right away
+	 */
+	long getDelay(long lastExchangeMs, long nowMs);
+}
@@ -0,0 +1,194 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.GeneratedMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Parser;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
+import POGOProtos.Networking.Responses.AddFortModifierResponseOuterClass.AddFortModifierResponse;
+import POGOProtos.Networking.Responses.AttackGymResponseOuterClass.AttackGymResponse;
+import POGOProtos.Networking.Responses.CatchPokemonResponseOuterClass.CatchPokemonResponse;
+import POGOProtos.Networking.Responses.CheckAwardedBadgesResponseOuterClass.CheckAwardedBadgesResponse;
+import POGOProtos.Networking.Responses.CheckChallengeResponseOuterClass.CheckChallengeResponse;
+import POGOProtos.Networking.Responses.CheckCodenameAvailableResponseOuterClass.CheckCodenameAvailableResponse;
+import POGOProtos.Networking.Responses.ClaimCodenameResponseOuterClass.ClaimCodenameResponse;
+import POGOProtos.Networking.Responses.CollectDailyBonusResponseOuterClass.CollectDailyBonusResponse;
+import POGOProtos.Networking.Responses.CollectDailyDefenderBonusResponseOuterClass.CollectDailyDefenderBonusResponse;
+import POGOProtos.Networking.Responses.DiskEncounterResponseOuterClass.DiskEncounterResponse;
+import POGOProtos.Networking.Responses.DownloadItemTemplatesResponseOuterClass.DownloadItemTemplatesResponse;
+import POGOProtos.Networking.Responses.DownloadRemoteConfigVersionResponseOuterClass.DownloadRemoteConfigVersionResponse;
+import POGOProtos.Networking.Responses.DownloadSettingsResponseOuterClass.DownloadSettingsResponse;
+import POGOProtos.Networking.Responses.EchoResponseOuterClass.EchoResponse;
+import POGOProtos.Networking.Responses.EncounterResponseOuterClass.EncounterResponse;
+import POGOProtos.Networking.Responses.EncounterTutorialCompleteResponseOuterClass.EncounterTutorialCompleteResponse;
+import POGOProtos.Networking.Responses.EquipBadgeResponseOuterClass.EquipBadgeResponse;
+import POGOProtos.Networking.Responses.EvolvePokemonResponseOuterClass.EvolvePokemonResponse;
+import POGOProtos.Networking.Responses.FortDeployPokemonResponseOuterClass.FortDeployPokemonResponse;
+import POGOProtos.Networking.Responses.FortDetailsResponseOuterClass.FortDetailsResponse;
+import POGOProtos.Networking.Responses.FortRecallPokemonResponseOuterClass.FortRecallPokemonResponse;
+import POGOProtos.Networking.Responses.FortSearchResponseOuterClass.FortSearchResponse;
+import POGOProtos.Networking.Responses.GetAssetDigestResponseOuterClass.GetAssetDigestResponse;
+import POGOProtos.Networking.Responses.GetBuddyWalkedResponseOuterClass.GetBuddyWalkedResponse;
+import POGOProtos.Networking.Responses.GetDownloadUrlsResponseOuterClass.GetDownloadUrlsResponse;
+import POGOProtos.Networking.Responses.GetGymDetailsResponseOuterClass.GetGymDetailsResponse;
+import POGOProtos.Networking.Responses.GetHatchedEggsResponseOuterClass.GetHatchedEggsResponse;
+import POGOProtos.Networking.Responses.GetIncensePokemonResponseOuterClass.GetIncensePokemonResponse;
+import POGOProtos.Networking.Responses.GetInventoryResponseOuterClass.GetInventoryResponse;
+import POGOProtos.Networking.Responses.GetMapObjectsResponseOuterClass.GetMapObjectsResponse;
+import POGOProtos.Networking.Responses.GetPlayerProfileResponseOuterClass.GetPlayerProfileResponse;
+import POGOProtos.Networking.Responses.GetPlayerResponseOuterClass.GetPlayerResponse;
+import POGOProtos.Networking.Responses.GetSuggestedCodenamesResponseOuterClass.GetSuggestedCodenamesResponse;
+import POGOProtos.Networking.Responses.IncenseEncounterResponseOuterClass.IncenseEncounterResponse;
+import POGOProtos.Networking.Responses.LevelUpRewardsResponseOuterClass.LevelUpRewardsResponse;
+import POGOProtos.Networking.Responses.MarkTutorialCompleteResponseOuterClass.MarkTutorialCompleteResponse;
+import POGOProtos.Networking.Responses.NicknamePokemonResponseOuterClass.NicknamePokemonResponse;
+import POGOProtos.Networking.Responses.PlayerUpdateResponseOuterClass.PlayerUpdateResponse;
+import POGOProtos.Networking.Responses.RecycleInventoryItemResponseOuterClass.RecycleInventoryItemResponse;
+import POGOProtos.Networking.Responses.ReleasePokemonResponseOuterClass.ReleasePokemonResponse;
+import POGOProtos.Networking.Responses.SetAvatarResponseOuterClass.SetAvatarResponse;
+import POGOProtos.Networking.Responses.SetBuddyPokemonResponseOuterClass.SetBuddyPokemonResponse;
+import POGOProtos.Networking.Responses.SetContactSettingsResponseOuterClass.SetContactSettingsResponse;
+import POGOProtos.Networking.Responses.SetFavoritePokemonResponseOuterClass.SetFavoritePokemonResponse;
+import POGOProtos.Networking.Responses.SetPlayerTeamResponseOuterClass.SetPlayerTeamResponse;
+import POGOProtos.Networking.Responses.SfidaActionLogResponseOuterClass.SfidaActionLogResponse;
+import POGOProtos.Networking.Responses.StartGymBattleResponseOuterClass.StartGymBattleResponse;
+import POGOProtos.Networking.Responses.UpgradePokemonResponseOuterClass.UpgradePokemonResponse;
+import POGOProtos.Networking.Responses.UseIncenseResponseOuterClass.UseIncenseResponse;
+import POGOProtos.Networking.Responses.UseItemCaptureResponseOuterClass.UseItemCaptureResponse;
+import POGOProtos.Networking.Responses.UseItemEggIncubatorResponseOuterClass.UseItemEggIncubatorResponse;
+import POGOProtos.Networking.Responses.UseItemGymResponseOuterClass.UseItemGymResponse;
+import POGOProtos.Networking.Responses.UseItemPotionResponseOuterClass.UseItemPotionResponse;
+import POGOProtos.Networking.Responses.UseItemReviveResponseOuterClass.UseItemReviveResponse;
+import POGOProtos.Networking.Responses.UseItemXpBoostResponseOuterClass.UseItemXpBoostResponse;
+import POGOProtos.Networking.Responses.VerifyChallengeResponseOuterClass.VerifyChallengeResponse;
+
+/**
+ * Maps every RequestType to the protobuf parser of its response message.
+ * The parsers are the generated singletons, resolved once when the class is loaded,
+ * so parsing a payload never goes through reflection.
+ */
+public final class ParserRegistry {
+	private static final Map<RequestType, Parser<? extends GeneratedMessage>> PARSERS =
+			new EnumMap<>(RequestType.class);
+
+	static {
+		PARSERS.put(RequestType.PLAYER_UPDATE, PlayerUpdateResponse.parser());
+		PARSERS.put(RequestType.GET_PLAYER, GetPlayerResponse.parser());
+		PARSERS.put(RequestType.GET_INVENTORY, GetInventoryResponse.parser());
+		PARSERS.put(RequestType.DOWNLOAD_SETTINGS, DownloadSettingsResponse.parser());
+		PARSERS.put(RequestType.DOWNLOAD_ITEM_TEMPLATES, DownloadItemTemplatesResponse.parser());
+		PARSERS.put(RequestType.DOWNLOAD_REMOTE_CONFIG_VERSION, DownloadRemoteConfigVersionResponse.parser());
+		PARSERS.put(RequestType.FORT_SEARCH, FortSearchResponse.parser());
+		PARSERS.put(RequestType.ENCOUNTER, EncounterResponse.parser());
+		PARSERS.put(RequestType.CATCH_POKEMON, CatchPokemonResponse.parser());
+		PARSERS.put(RequestType.FORT_DETAILS, FortDetailsResponse.parser());
+		PARSERS.put(RequestType.GET_MAP_OBJECTS, GetMapObjectsResponse.parser());
+		PARSERS.put(RequestType.FORT_DEPLOY_POKEMON, FortDeployPokemonResponse.parser());
+		PARSERS.put(RequestType.FORT_RECALL_POKEMON, FortRecallPokemonResponse.parser());
+		PARSERS.put(RequestType.RELEASE_POKEMON, ReleasePokemonResponse.parser());
+		PARSERS.put(RequestType.USE_ITEM_POTION, UseItemPotionResponse.parser());
+		PARSERS.put(RequestType.USE_ITEM_CAPTURE, UseItemCaptureResponse.parser());
+		PARSERS.put(RequestType.USE_ITEM_REVIVE, UseItemReviveResponse.parser());
+		PARSERS.put(RequestType.GET_PLAYER_PROFILE, GetPlayerProfileResponse.parser());
+		PARSERS.put(RequestType.EVOLVE_POKEMON, EvolvePokemonResponse.parser());
+		PARSERS.put(RequestType.GET_HATCHED_EGGS, GetHatchedEggsResponse.parser());
+		PARSERS.put(RequestType.ENCOUNTER_TUTORIAL_COMPLETE, EncounterTutorialCompleteResponse.parser());
+		PARSERS.put(RequestType.LEVEL_UP_REWARDS, LevelUpRewardsResponse.parser());
+		PARSERS.put(RequestType.CHECK_AWARDED_BADGES, CheckAwardedBadgesResponse.parser());
+		PARSERS.put(RequestType.USE_ITEM_GYM, UseItemGymResponse.parser());
+		PARSERS.put(RequestType.GET_GYM_DETAILS, GetGymDetailsResponse.parser());
+		PARSERS.put(RequestType.START_GYM_BATTLE, StartGymBattleResponse.parser());
+		PARSERS.put(RequestType.ATTACK_GYM, AttackGymResponse.parser());
+		PARSERS.put(RequestType.RECYCLE_INVENTORY_ITEM, RecycleInventoryItemResponse.parser());
+		PARSERS.put(RequestType.COLLECT_DAILY_BONUS, CollectDailyBonusResponse.parser());
+		PARSERS.put(RequestType.USE_ITEM_XP_BOOST, UseItemXpBoostResponse.parser());
+		PARSERS.put(RequestType.USE_ITEM_EGG_INCUBATOR, UseItemEggIncubatorResponse.parser());
+		PARSERS.put(RequestType.USE_INCENSE, UseIncenseResponse.parser());
+		PARSERS.put(RequestType.GET_INCENSE_POKEMON, GetIncensePokemonResponse.parser());
+		PARSERS.put(RequestType.INCENSE_ENCOUNTER, IncenseEncounterResponse.parser());
+		PARSERS.put(RequestType.ADD_FORT_MODIFIER, AddFortModifierResponse.parser());
+		PARSERS.put(RequestType.DISK_ENCOUNTER, DiskEncounterResponse.parser());
+		PARSERS.put(RequestType.COLLECT_DAILY_DEFENDER_BONUS, CollectDailyDefenderBonusResponse.parser());
+		PARSERS.put(RequestType.UPGRADE_POKEMON, UpgradePokemonResponse.parser());
+		PARSERS.put(RequestType.SET_FAVORITE_POKEMON, SetFavoritePokemonResponse.parser());
+		PARSERS.put(RequestType.NICKNAME_POKEMON, NicknamePokemonResponse.parser());
+		PARSERS.put(RequestType.EQUIP_BADGE, EquipBadgeResponse.parser());
+		PARSERS.put(RequestType.SET_CONTACT_SETTINGS, SetContactSettingsResponse.parser());
+		PARSERS.put(RequestType.SET_BUDDY_POKEMON, SetBuddyPokemonResponse.parser());
+		PARSERS.put(RequestType.GET_BUDDY_WALKED, GetBuddyWalkedResponse.parser());
+		PARSERS.put(RequestType.GET_ASSET_DIGEST, GetAssetDigestResponse.parser());
+		PARSERS.put(RequestType.GET_DOWNLOAD_URLS, GetDownloadUrlsResponse.parser());
+		PARSERS.put(RequestType.GET_SUGGESTED_CODENAMES, GetSuggestedCodenamesResponse.parser());
+		PARSERS.put(RequestType.CHECK_CODENAME_AVAILABLE, CheckCodenameAvailableResponse.parser());
+		PARSERS.put(RequestType.CLAIM_CODENAME, ClaimCodenameResponse.parser());
+		PARSERS.put(RequestType.SET_AVATAR, SetAvatarResponse.parser());
+		PARSERS.put(RequestType.SET_PLAYER_TEAM, SetPlayerTeamResponse.parser());
+		PARSERS.put(RequestType.MARK_TUTORIAL_COMPLETE, MarkTutorialCompleteResponse.parser());
+		PARSERS.put(RequestType.CHECK_CHALLENGE, CheckChallengeResponse.parser());
+		PARSERS.put(RequestType.VERIFY_CHALLENGE, VerifyChallengeResponse.parser());
+		PARSERS.put(RequestType.ECHO, EchoResponse.parser());
+		PARSERS.put(RequestType.SFIDA_ACTION_LOG, SfidaActionLogResponse.parser());
+	}
+
+	private ParserRegistry() {
+	}
+
+	/**
+	 * Gets the parser of the response bound to the given request type.
+	 *
+	 * @param type the request type
+	 * @param <T>  the response message type
+	 * @return the parser, or null if the request type has no known response
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends GeneratedMessage> Parser<T> get(RequestType type) {
+		return (Parser<T>) PARSERS.get(type);
+	}
+
+	/**
+	 * Checks whether a parser is registered for the given request type.
+	 *
+	 * @param type the request type
+	 * @return true if responses of this type can be parsed through the registry
+	 */
+	public static boolean contains(RequestType type) {
+		return PARSERS.containsKey(type);
+	}
+
+	/**
+	 * Parses the response payload of the given request type.
+	 *
+	 * @param type the request type
+	 * @param data the raw payload received from the server
+	 * @param <T>  the response message type
+	 * @return the parsed response
+	 * @throws InvalidProtocolBufferException if the payload is malformed or the type is unknown
+	 */
+	public static <T extends GeneratedMessage> T parse(RequestType type, ByteString data)
+			throws InvalidProtocolBufferException {
+		Parser<T> parser = get(type);
+		if (parser == null) {
+			throw new InvalidProtocolBufferException("No parser registered for " + type);
+		}
+		return parser.parseFrom(data);
+	}
+}
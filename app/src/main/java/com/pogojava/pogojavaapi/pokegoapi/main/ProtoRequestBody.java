@@ -0,0 +1,64 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * A request body writing a protobuf message straight into the http sink,
+ * without serializing it to an intermediate byte array first.
+ */
+public class ProtoRequestBody extends RequestBody {
+	private static final int BUFFER_SIZE = 4096;
+
+	private final MessageLite message;
+	private final int size;
+
+	/**
+	 * Instantiates a new body for the given message
+	 *
+	 * @param message the message to send
+	 */
+	public ProtoRequestBody(MessageLite message) {
+		this.message = message;
+		this.size = message.getSerializedSize();
+	}
+
+	@Override
+	public MediaType contentType() {
+		return null;
+	}
+
+	@Override
+	public long contentLength() {
+		return size;
+	}
+
+	@Override
+	public void writeTo(BufferedSink sink) throws IOException {
+		CodedOutputStream output = CodedOutputStream.newInstance(sink.outputStream(), Math.min(size, BUFFER_SIZE));
+		message.writeTo(output);
+		output.flush();
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import com.google.protobuf.GeneratedMessage;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
+
+/**
+ * A set of AsyncServerRequests sharing one RequestEnvelope.
+ * The primary requests are sent first, in the order they were added, followed by the bounded requests
+ * of all of them, each type being sent only once.
+ */
+class RequestBatch {
+	private final List<AsyncServerRequest<GeneratedMessage, Object>> requests = new ArrayList<>();
+	private final Set<RequestType> primaryTypes = EnumSet.noneOf(RequestType.class);
+	private final Map<RequestType, InternalServerRequest> boundedRequests = new LinkedHashMap<>();
+	private InternalServerRequest[] serverRequests;
+
+	/**
+	 * Adds a request to the batch if it can share the envelope with the requests already in it.
+	 * The first request is always accepted, the next ones are refused when their type is already in the envelope.
+	 *
+	 * @param request the request to add
+	 * @return true if the request was added
+	 */
+	boolean add(AsyncServerRequest<GeneratedMessage, Object> request) {
+		RequestType type = request.getType();
+		if (!requests.isEmpty()) {
+			if (primaryTypes.contains(type) || boundedRequests.containsKey(type)) {
+				return false;
+			}
+			for (InternalServerRequest extra : request.getBoundedRequests()) {
+				if (primaryTypes.contains(extra.getType())) {
+					return false;
+				}
+			}
+		}
+
+		requests.add(request);
+		primaryTypes.add(type);
+		for (InternalServerRequest extra : request.getBoundedRequests()) {
+			// the latest one carries the most recent state, eg. the inventory timestamp
+			boundedRequests.put(extra.getType(), extra);
+		}
+		serverRequests = null;
+		return true;
+	}
+
+	/**
+	 * Gets the requests to put in the envelope, primary requests first
+	 *
+	 * @return the server requests
+	 */
+	InternalServerRequest[] getServerRequests() {
+		if (serverRequests == null) {
+			ArrayList<InternalServerRequest> list = new ArrayList<>(requests.size() + boundedRequests.size());
+			for (AsyncServerRequest<GeneratedMessage, Object> request : requests) {
+				list.add(new InternalServerRequest(request.getType(), request.getRequest()));
+			}
+			list.addAll(boundedRequests.values());
+			serverRequests = list.toArray(new InternalServerRequest[list.size()]);
+		}
+		return serverRequests;
+	}
+
+	List<AsyncServerRequest<GeneratedMessage, Object>> getRequests() {
+		return requests;
+	}
+
+	int size() {
+		return requests.size();
+	}
+}
@@ -22,39 +22,86 @@ import com.google.protobuf.ByteString;
 import com.google.protobuf.GeneratedMessage;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.pogojava.pogojavaapi.pokegoapi.api.PokemonGo;
+import com.pogojava.pogojavaapi.pokegoapi.auth.CredentialStore;
 import com.pogojava.pogojavaapi.pokegoapi.exceptions.LoginFailedException;
 import com.pogojava.pogojavaapi.pokegoapi.exceptions.RemoteServerException;
 import com.pogojava.pogojavaapi.pokegoapi.util.Signature;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import POGOProtos.Networking.Envelopes.AuthTicketOuterClass.AuthTicket;
 import POGOProtos.Networking.Envelopes.RequestEnvelopeOuterClass.RequestEnvelope;
 import POGOProtos.Networking.Envelopes.ResponseEnvelopeOuterClass.ResponseEnvelope;
+import POGOProtos.Networking.Requests.RequestOuterClass.Request;
+import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.OkHttpClient;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 
 public class RequestHandler implements Runnable {
+	private static final String TAG = RequestHandler.class.getSimpleName();
+
+	/**
+	 * Maximum number of times an envelope follows a redirect before failing
+	 */
+	public static final int MAX_REDIRECTS = 3;
+
 	private final PokemonGo mApi;
 	private OkHttpClient mClient;
 	private Random mRandom;
-	private String mApiEndpoint;
+	private volatile String mApiEndpoint;
 
 	private final Thread mAsyncHttpThread;
-	private final BlockingQueue<AsyncServerRequest> mWorkQueue = new LinkedBlockingQueue<>();
+	private final RequestQueue<AsyncServerRequest<GeneratedMessage, Object>> mWorkQueue = new RequestQueue<>();
 	private static AtomicLong IDS = new AtomicLong(System.currentTimeMillis());
 
-	private ExecutorService mDecoupler = Executors.newCachedThreadPool();
+	private volatile CallbackExecutor mDecoupler = CallbackExecutor.bounded(CallbackExecutor.DEFAULT_THREADS);
+
+	private final Object mEnvelopeLock = new Object();
+	private AuthTicket mAuthTicket;
+	private AuthTicket mRestoredTicket;
+	private boolean mSessionEstablished = false;
+
+	private volatile CredentialStore mCredentialStore;
+	private volatile String mCredentialKey;
+
+	private final Object mInFlightLock = new Object();
+	private int mInFlight = 0;
+	private int mMaxInFlight = 1;
+
+	private volatile PacingPolicy mPacingPolicy = new FixedIntervalPacingPolicy();
+	private long mLastSendTime = 0;
+	private volatile long mLastCompleteTime = 0;
+
+	private final DuplicateRequests<Request, AsyncServerRequest<?, ?>> mDuplicates =
+			new DuplicateRequests<Request, AsyncServerRequest<?, ?>>() {
+				@Override
+				boolean isCancelled(AsyncServerRequest<?, ?> request) {
+					return request.isCancelled();
+				}
+			};
+
+	private volatile RequestMetrics mMetrics = NoOpRequestMetrics.INSTANCE;
+	private volatile RetryPolicy mRetryPolicy = new ExponentialBackoffRetryPolicy();
+	private final ScheduledThreadPoolExecutor mRetryScheduler;
+
+	private volatile int mMaxBatchSize = 1;
+	private volatile long mBatchWindow = 0;
 
 	/**
 	 * Instantiates a new Request handler.
@@ -68,6 +115,17 @@ public class RequestHandler implements Runnable {
 		mRandom = new Random();
 		mApiEndpoint = ApiSettings.API_ENDPOINT;
 
+		mRetryScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Retry Thread");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		mRetryScheduler.setKeepAliveTime(10, TimeUnit.SECONDS);
+		mRetryScheduler.allowCoreThreadTimeOut(true);
+
 		mAsyncHttpThread = new Thread(this, "Async HTTP Thread");
 		mAsyncHttpThread.setDaemon(true);
 		mAsyncHttpThread.start();
@@ -81,104 +139,389 @@ public class RequestHandler implements Runnable {
 	 * @param asyncServerRequest Request to make
 	 */
 	protected void sendRequest(final AsyncServerRequest asyncServerRequest) {
-		mWorkQueue.offer(asyncServerRequest);
+		asyncServerRequest.queuedAt = System.nanoTime();
+		@SuppressWarnings("unchecked")
+		AsyncServerRequest<GeneratedMessage, Object> request = asyncServerRequest;
+		if (RequestTypes.isReadOnly(request.getType()) && mDuplicates.join(request.getRequest(), request)) {
+			// the same request is already queued or in flight, share its response
+			dropBoundedRequests(request);
+			return;
+		}
+		mWorkQueue.offer(request, request.getPriority());
+	}
+
+	/**
+	 * @return the number of requests which got the response of an identical request instead of being sent
+	 */
+	public long getDeduplicatedCount() {
+		return mDuplicates.getDeduplicatedCount();
+	}
+
+	/**
+	 * Sets how many envelopes can wait for a response at the same time.
+	 * With 1 (the default) each envelope is sent only once the previous one got its response.
+	 * Until the server gave us an auth ticket and endpoint, envelopes are still sent one by one.
+	 *
+	 * @param maxInFlight the maximum number of concurrent envelopes
+	 */
+	public void setMaxInFlight(int maxInFlight) {
+		if (maxInFlight < 1) {
+			throw new IllegalArgumentException("maxInFlight must be at least 1");
+		}
+		if (mClient.dispatcher().getMaxRequestsPerHost() < maxInFlight) {
+			mClient.dispatcher().setMaxRequestsPerHost(maxInFlight);
+		}
+		synchronized (mInFlightLock) {
+			mMaxInFlight = maxInFlight;
+			mInFlightLock.notifyAll();
+		}
+	}
+
+	public int getMaxInFlight() {
+		synchronized (mInFlightLock) {
+			return mMaxInFlight;
+		}
+	}
+
+	/**
+	 * Sets the policy deciding the delay between two envelopes.
+	 *
+	 * @param pacingPolicy the policy, use a FixedIntervalPacingPolicy of 0 to disable pacing
+	 */
+	public void setPacingPolicy(PacingPolicy pacingPolicy) {
+		if (pacingPolicy == null) {
+			throw new NullPointerException("Pacing policy is null");
+		}
+		mPacingPolicy = pacingPolicy;
+	}
+
+	public PacingPolicy getPacingPolicy() {
+		return mPacingPolicy;
+	}
+
+	/**
+	 * Allows queued requests to share the same envelope. Once a request is ready to be sent,
+	 * the handler keeps taking queued requests for up to windowMs, as long as they can be sent along
+	 * (a request type appears only once per envelope) and the batch is not full.
+	 * Bounded common requests are sent only once per envelope.
+	 *
+	 * @param maxRequests the maximum number of requests per envelope, 1 (the default) disables batching
+	 * @param windowMs    how long to wait for more requests, 0 to only take the already queued ones
+	 */
+	public void setBatching(int maxRequests, long windowMs) {
+		if (maxRequests < 1) {
+			throw new IllegalArgumentException("maxRequests must be at least 1");
+		}
+		if (windowMs < 0) {
+			throw new IllegalArgumentException("windowMs can not be negative");
+		}
+		mMaxBatchSize = maxRequests;
+		mBatchWindow = windowMs;
+	}
+
+	public int getMaxBatchSize() {
+		return mMaxBatchSize;
+	}
+
+	public long getBatchWindow() {
+		return mBatchWindow;
+	}
+
+	/**
+	 * Sets how long a queued request can be overtaken by requests of a higher priority before it is sent
+	 * regardless of its priority.
+	 *
+	 * @param thresholdMs the threshold in milliseconds
+	 */
+	public void setStarvationThreshold(long thresholdMs) {
+		if (thresholdMs < 0) {
+			throw new IllegalArgumentException("thresholdMs can not be negative");
+		}
+		mWorkQueue.setStarvationThreshold(thresholdMs);
+	}
+
+	public long getStarvationThreshold() {
+		return mWorkQueue.getStarvationThreshold();
+	}
+
+	/**
+	 * @param priority the lane
+	 * @return the number of requests waiting in the lane
+	 */
+	public int getQueuedCount(RequestPriority priority) {
+		return mWorkQueue.size(priority);
+	}
+
+	/**
+	 * Sets where response callbacks and common request parsing run, by default a pool of
+	 * CallbackExecutor.DEFAULT_THREADS threads. Use CallbackExecutor.serial() to run them one at a time,
+	 * or pass an executor of the application. The previous executor, if created by the api, is shut down
+	 * once its queued callbacks ran.
+	 *
+	 * @param executor the executor running the callbacks
+	 */
+	public void setCallbackExecutor(Executor executor) {
+		CallbackExecutor previous = mDecoupler;
+		mDecoupler = CallbackExecutor.wrap(executor);
+		if (previous != mDecoupler) {
+			previous.shutdown();
+		}
+	}
+
+	/**
+	 * @return the executor running the callbacks, with its queue and latency metrics
+	 */
+	public CallbackExecutor getCallbackExecutor() {
+		return mDecoupler;
+	}
+
+	/**
+	 * Sets the metrics receiving the timings of every stage of the requests, NoOpRequestMetrics by default.
+	 * Use an InMemoryRequestMetrics to read them from the application.
+	 *
+	 * @param metrics the metrics
+	 */
+	public void setMetrics(RequestMetrics metrics) {
+		if (metrics == null) {
+			throw new NullPointerException("Metrics is null");
+		}
+		mMetrics = metrics;
+	}
+
+	public RequestMetrics getMetrics() {
+		return mMetrics;
+	}
+
+	/**
+	 * Sets when envelopes made of read-only requests are sent again after a network error, a server error
+	 * or a malformed response. By default an ExponentialBackoffRetryPolicy.
+	 *
+	 * @param retryPolicy the policy, use an ExponentialBackoffRetryPolicy of 0 retries to disable retries
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		if (retryPolicy == null) {
+			throw new NullPointerException("Retry policy is null");
+		}
+		mRetryPolicy = retryPolicy;
+	}
+
+	public RetryPolicy getRetryPolicy() {
+		return mRetryPolicy;
+	}
+
+	/**
+	 * Keeps the auth ticket and endpoint given by the server in a store, and starts from the stored ones if
+	 * they are still valid. A restored ticket rejected by the server is dropped and the envelope is sent again
+	 * with the auth info of the credential provider. To be called before login.
+	 *
+	 * @param store the store, or null to keep the ticket in memory only
+	 * @param key   the key of the ticket in the store, unique per account
+	 */
+	public void setCredentialStore(CredentialStore store, String key) {
+		mCredentialStore = store;
+		mCredentialKey = key;
+		if (store == null) {
+			return;
+		}
+
+		try {
+			byte[] data = store.load(key);
+			if (data == null) {
+				return;
+			}
+			DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+			String endpoint = input.readUTF();
+			byte[] ticketData = new byte[input.readInt()];
+			input.readFully(ticketData);
+			AuthTicket ticket = AuthTicket.parseFrom(ticketData);
+			if (ticket.getExpireTimestampMs() <= mApi.currentTimeMillis()) {
+				return;
+			}
+			synchronized (mEnvelopeLock) {
+				mAuthTicket = ticket;
+				mRestoredTicket = ticket;
+				mApiEndpoint = endpoint;
+			}
+		} catch (IOException e) {
+			Log.w(TAG, "Cannot read the stored auth ticket", e);
+		}
+	}
+
+	private void storeTicket(AuthTicket ticket, String endpoint) {
+		CredentialStore store = mCredentialStore;
+		if (store == null) {
+			return;
+		}
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream output = new DataOutputStream(bytes);
+			output.writeUTF(endpoint);
+			byte[] ticketData = ticket.toByteArray();
+			output.writeInt(ticketData.length);
+			output.write(ticketData);
+			output.flush();
+			store.save(mCredentialKey, bytes.toByteArray());
+		} catch (IOException e) {
+			Log.w(TAG, "Cannot store the auth ticket", e);
+		}
 	}
 
 	/**
-	 * Sends multiple ServerRequests in a thread safe manner.
+	 * Drops the ticket or token restored from the credential store, after the server rejected the envelope
+	 *
+	 * @return true if restored credentials were dropped and the envelope can be sent again
+	 */
+	private boolean discardRestoredCredentials() throws LoginFailedException, RemoteServerException {
+		synchronized (mEnvelopeLock) {
+			if (mRestoredTicket != null) {
+				if (mAuthTicket == mRestoredTicket) {
+					mAuthTicket = null;
+				}
+				mRestoredTicket = null;
+				CredentialStore store = mCredentialStore;
+				if (store != null) {
+					try {
+						store.remove(mCredentialKey);
+					} catch (IOException e) {
+						Log.w(TAG, "Cannot remove the stored auth ticket", e);
+					}
+				}
+				return true;
+			}
+		}
+		return mApi.getCredentialProvider() != null && mApi.getCredentialProvider().invalidateRestoredToken();
+	}
+
+	/**
+	 * Builds the http request for the given server requests, with the current auth ticket and endpoint.
 	 *
 	 * @param serverRequests list of ServerRequests to be sent
+	 * @return the http request, or null if nothing has to be sent
 	 * @throws RemoteServerException the remote server exception
 	 * @throws LoginFailedException  the login failed exception
 	 */
-	private AuthTicket internalSendServerRequests(AuthTicket authTicket, InternalServerRequest... serverRequests)
+	private okhttp3.Request buildHttpRequest(InternalServerRequest... serverRequests)
 			throws RemoteServerException, LoginFailedException {
-		AuthTicket newAuthTicket = authTicket;
-
 		if (serverRequests.length == 0) {
-			return authTicket;
+			return null;
 		}
 
 		if (mApi.isInCheckChallenge()) {
-			return authTicket;
+			return null;
 		}
 
-		RequestEnvelope.Builder builder = RequestEnvelope.newBuilder();
-		resetBuilder(builder, authTicket);
-
-		for (InternalServerRequest serverRequest : serverRequests) {
-			builder.addRequests(serverRequest.getRequest());
-		}
+		RequestEnvelope request;
+		String endpoint;
+		synchronized (mEnvelopeLock) {
+			RequestEnvelope.Builder builder = RequestEnvelope.newBuilder();
+			resetBuilder(builder, mAuthTicket);
 
-		Signature.setSignature(mApi, builder);
+			for (InternalServerRequest serverRequest : serverRequests) {
+				builder.addRequests(serverRequest.getRequest());
+			}
 
-		ByteArrayOutputStream stream = new ByteArrayOutputStream();
-		RequestEnvelope request = builder.build();
-		try {
-			request.writeTo(stream);
-		} catch (IOException e) {
-			// Failed to write request to bytearray ouput stream. This should never happen
+			Signature.setSignature(mApi, builder);
+			request = builder.build();
+			endpoint = mApiEndpoint;
 		}
 
-		RequestBody body = RequestBody.create(null, stream.toByteArray());
-		okhttp3.Request httpRequest = new okhttp3.Request.Builder()
-				.url(mApiEndpoint)
-				.post(body)
+		return new okhttp3.Request.Builder()
+				.url(endpoint)
+				.post(new ProtoRequestBody(request))
 				.build();
+	}
 
-		try (Response response = mClient.newCall(httpRequest).execute()) {
-			if (response.code() != 200) {
-				throw new RemoteServerException("Got a unexpected http code : " + response.code());
+	/**
+	 * Reads the response envelope, updates endpoint and auth ticket and hands the payloads to the requests.
+	 *
+	 * @param response       the http response
+	 * @param serverRequests the requests sent within the envelope
+	 * @return true if the envelope has to be sent again, to the new endpoint or with fresh credentials
+	 * @throws RemoteServerException the remote server exception
+	 * @throws LoginFailedException  the login failed exception
+	 */
+	private boolean handleResponse(Response response, InternalServerRequest... serverRequests)
+			throws RemoteServerException, LoginFailedException {
+		if (response.code() != 200) {
+			String message = "Got a unexpected http code : " + response.code();
+			if (response.code() >= 500 || response.code() == 429) {
+				throw new TransientServerException(message, null);
 			}
+			throw new RemoteServerException(message);
+		}
 
-			ResponseEnvelope responseEnvelop;
-			try (InputStream content = response.body().byteStream()) {
-				responseEnvelop = ResponseEnvelope.parseFrom(content);
-			} catch (IOException e) {
-				// retrieved garbage from the server
-				throw new RemoteServerException("Received malformed response : " + e);
-			}
+		LazyResponseEnvelope responseEnvelop;
+		try {
+			byte[] body = response.body().bytes();
+			mMetrics.onBytesReceived(body.length);
+			responseEnvelop = LazyResponseEnvelope.parseFrom(body);
+		} catch (IOException e) {
+			// retrieved garbage from the server
+			throw new TransientServerException("Received malformed response : " + e, e);
+		}
 
+		AuthTicket newTicket = null;
+		String endpoint;
+		synchronized (mEnvelopeLock) {
 			if (responseEnvelop.getApiUrl() != null && responseEnvelop.getApiUrl().length() > 0) {
 				mApiEndpoint = "https://" + responseEnvelop.getApiUrl() + "/rpc";
 			}
 
-			if (responseEnvelop.hasAuthTicket()) {
-				newAuthTicket = responseEnvelop.getAuthTicket();
+			// responses may come back out of order, keep the ticket expiring last
+			if (responseEnvelop.hasAuthTicket()
+					&& (mAuthTicket == null || responseEnvelop.getAuthTicket().getExpireTimestampMs()
+					>= mAuthTicket.getExpireTimestampMs())) {
+				mAuthTicket = responseEnvelop.getAuthTicket();
+				mRestoredTicket = null;
+				newTicket = mAuthTicket;
 			}
+			endpoint = mApiEndpoint;
+		}
+		if (newTicket != null) {
+			storeTicket(newTicket, endpoint);
+		}
 
-			if (responseEnvelop.getStatusCode() == ResponseEnvelope.StatusCode.INVALID_AUTH_TOKEN) {
-				throw new LoginFailedException(String.format("Invalid Auth status code recieved, token not refreshed? %s %s",
-						responseEnvelop.getApiUrl(), responseEnvelop.getError()));
-			} else if (responseEnvelop.getStatusCode() == ResponseEnvelope.StatusCode.REDIRECT) {
-				// 53 means that the api_endpoint was not correctly set, should be at this point, though, so redo the request
-				return internalSendServerRequests(newAuthTicket, serverRequests);
-			} else if (responseEnvelop.getStatusCode() == ResponseEnvelope.StatusCode.BAD_REQUEST) {
-				throw new RemoteServerException("Your account may be banned! please try from the official client.");
+		if (responseEnvelop.getStatusCode() == ResponseEnvelope.StatusCode.INVALID_AUTH_TOKEN) {
+			if (discardRestoredCredentials()) {
+				// the ticket or token kept from a previous run expired early, send again with fresh ones
+				return true;
 			}
+			throw new LoginFailedException(String.format("Invalid Auth status code recieved, token not refreshed? %s %s",
+					responseEnvelop.getApiUrl(), responseEnvelop.getError()));
+		} else if (responseEnvelop.getStatusCode() == ResponseEnvelope.StatusCode.REDIRECT) {
+			// 53 means that the api_endpoint was not correctly set, should be at this point, though, so redo the request
+			return true;
+		} else if (responseEnvelop.getStatusCode() == ResponseEnvelope.StatusCode.BAD_REQUEST) {
+			throw new RemoteServerException("Your account may be banned! please try from the official client.");
+		}
+
+		synchronized (mInFlightLock) {
+			if (!mSessionEstablished && mAuthTicket != null) {
+				mSessionEstablished = true;
+				mInFlightLock.notifyAll();
+			}
+		}
 
+		/**
+		 * map each reply to the numeric response,
+		 * ie first response = first request and send back to the requests to toBlocking.
+		 * */
+		int count = 0;
+		for (ByteString payload : responseEnvelop.getReturnsList()) {
+			if (count >= serverRequests.length) {
+				Log.w(TAG, "Ignoring " + (responseEnvelop.getReturnsCount() - count) + " unexpected returns");
+				break;
+			}
+			InternalServerRequest serverReq = serverRequests[count];
 			/**
-			 * map each reply to the numeric response,
-			 * ie first response = first request and send back to the requests to toBlocking.
-			 * */
-			int count = 0;
-			for (ByteString payload : responseEnvelop.getReturnsList()) {
-				InternalServerRequest serverReq = serverRequests[count];
-				/**
-				 * TODO: Probably all other payloads are garbage as well in this case,
-				 * so might as well throw an exception and leave this loop */
-				if (payload != null) {
-					serverReq.handleData(payload);
-				}
-				count++;
+			 * TODO: Probably all other payloads are garbage as well in this case,
+			 * so might as well throw an exception and leave this loop */
+			if (payload != null) {
+				serverReq.handleData(payload);
 			}
-		} catch (IOException e) {
-			throw new RemoteServerException(e);
-		} catch (RemoteServerException e) {
-			// catch it, so the auto-close of resources triggers, but don't wrap it in yet another RemoteServer Exception
-			throw e;
+			count++;
 		}
-		return newAuthTicket;
+		return false;
 	}
 
 	private void resetBuilder(RequestEnvelope.Builder builder, AuthTicket authTicket)
@@ -206,6 +549,214 @@ public class RequestHandler implements Runnable {
 		return IDS.incrementAndGet();
 	}
 
+	/**
+	 * Gets the delay before sending an envelope again after a transient failure.
+	 *
+	 * @param policy  the retry policy
+	 * @param types   the types of the requests of the envelope
+	 * @param attempt the number of the retry, starting at 1
+	 * @return the delay in milliseconds, or a negative value if the envelope must fail: a request is not
+	 * read-only or the policy gave up
+	 */
+	static long getRetryDelay(RetryPolicy policy, List<RequestType> types, int attempt) {
+		for (RequestType type : types) {
+			if (!RequestTypes.isReadOnly(type)) {
+				return -1;
+			}
+		}
+		return policy.getRetryDelay(attempt);
+	}
+
+	/**
+	 * @param redirects the number of redirects an envelope followed, including the new one
+	 * @return true if the envelope may follow the new redirect
+	 */
+	static boolean isRedirectAllowed(int redirects) {
+		return redirects <= MAX_REDIRECTS;
+	}
+
+	/**
+	 * Fires a response to a request and its duplicates, a callback throwing does not keep the others from
+	 * being fired
+	 */
+	private static void fireSafely(AsyncServerRequest<?, ?> request, List<AsyncServerRequest<?, ?>> duplicates,
+			ByteString data) {
+		fireSafely(request, data);
+		for (AsyncServerRequest<?, ?> duplicate : duplicates) {
+			fireSafely(duplicate, data);
+		}
+	}
+
+	private static void fireSafely(AsyncServerRequest<?, ?> request, ByteString data) {
+		try {
+			request.fire(data);
+		} catch (RuntimeException e) {
+			Log.e(TAG, "Callback of " + request.getType() + " failed", e);
+		}
+	}
+
+	/**
+	 * Fires an error to a request and its duplicates, a callback throwing does not keep the others from
+	 * being fired
+	 */
+	private static void fireSafely(AsyncServerRequest<?, ?> request, List<AsyncServerRequest<?, ?>> duplicates,
+			Throwable error) {
+		fireSafely(request, error);
+		for (AsyncServerRequest<?, ?> duplicate : duplicates) {
+			fireSafely(duplicate, error);
+		}
+	}
+
+	private static void fireSafely(AsyncServerRequest<?, ?> request, Throwable error) {
+		try {
+			request.fire(error);
+		} catch (RuntimeException e) {
+			Log.e(TAG, "Callback of " + request.getType() + " failed", e);
+		}
+	}
+
+	/**
+	 * Removes a request from the queued or in flight ones, later identical requests will be sent again
+	 *
+	 * @param request the request which got its response
+	 * @return the identical requests waiting for the same response
+	 */
+	private List<AsyncServerRequest<?, ?>> takeDuplicates(AsyncServerRequest<?, ?> request) {
+		if (!RequestTypes.isReadOnly(request.getType())) {
+			return Collections.emptyList();
+		}
+		return mDuplicates.take(request.getRequest());
+	}
+
+	/**
+	 * Checks whether a queued request can be dropped: its callback and the ones of its duplicates
+	 * were all cancelled
+	 *
+	 * @param request the request taken from the queue
+	 * @return true if nobody waits for the response anymore
+	 */
+	private boolean isCancelled(AsyncServerRequest<?, ?> request) {
+		if (!request.isCancelled()) {
+			return false;
+		}
+		return !RequestTypes.isReadOnly(request.getType()) || mDuplicates.dropIfAbandoned(request.getRequest());
+	}
+
+	/**
+	 * Lets the common requests bounded to a request which will not be sent go with the next request
+	 *
+	 * @param request the dropped request
+	 */
+	private void dropBoundedRequests(AsyncServerRequest<?, ?> request) {
+		List<InternalServerRequest> bounded = request.getBoundedRequests();
+		if (!bounded.isEmpty() && mApi.getCommonRequestScheduler() != null) {
+			mApi.getCommonRequestScheduler().onDropped(bounded);
+		}
+	}
+
+	/**
+	 * Waits until a new envelope is allowed to be in flight
+	 */
+	private void acquireSlot() {
+		synchronized (mInFlightLock) {
+			while (mInFlight >= (mSessionEstablished ? mMaxInFlight : 1)) {
+				try {
+					mInFlightLock.wait();
+				} catch (InterruptedException ignored) {
+					// Ignore
+				}
+			}
+			mInFlight++;
+		}
+	}
+
+	private void releaseSlot() {
+		mLastCompleteTime = System.currentTimeMillis();
+		synchronized (mInFlightLock) {
+			mInFlight--;
+			mInFlightLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Waits as long as the pacing policy asks before the next envelope, counting from the end of the last
+	 * exchange, or from the last send while envelopes are still in flight
+	 */
+	private void pace() {
+		long last = Math.max(mLastSendTime, mLastCompleteTime);
+		long delay = mPacingPolicy.getDelay(last, System.currentTimeMillis());
+		if (delay > 0) {
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException ignored) {
+				// Ignore
+			}
+		}
+		mLastSendTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Takes queued requests that can share the envelope of the given batch
+	 *
+	 * @param batch the batch to fill
+	 * @return the first request which could not join the batch, to be sent next, or null
+	 */
+	private AsyncServerRequest<GeneratedMessage, Object> fillBatch(RequestBatch batch) {
+		long deadline = System.currentTimeMillis() + mBatchWindow;
+		while (batch.size() < mMaxBatchSize) {
+			AsyncServerRequest<GeneratedMessage, Object> candidate;
+			long wait = deadline - System.currentTimeMillis();
+			try {
+				candidate = wait > 0 ? mWorkQueue.poll(wait, TimeUnit.MILLISECONDS) : mWorkQueue.poll();
+			} catch (InterruptedException e) {
+				break;
+			}
+
+			if (candidate == null) {
+				break;
+			}
+			if (isCancelled(candidate)) {
+				dropBoundedRequests(candidate);
+				continue;
+			}
+			if (!batch.add(candidate)) {
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Builds the envelope of the given call and enqueues it on the http client
+	 *
+	 * @param call the call to send
+	 */
+	private void send(EnvelopeCall call) {
+		okhttp3.Request httpRequest;
+		long start = System.nanoTime();
+		try {
+			httpRequest = buildHttpRequest(call.serverRequests);
+		} catch (RemoteServerException | LoginFailedException | RuntimeException e) {
+			call.fail(e);
+			return;
+		}
+
+		if (httpRequest == null) {
+			call.dropBoundedRequests();
+			call.complete();
+			return;
+		}
+
+		call.sentAt = System.nanoTime();
+		call.record(RequestMetrics.Stage.BUILD, call.sentAt - start);
+		try {
+			mMetrics.onBytesSent(httpRequest.body().contentLength());
+		} catch (IOException ignored) {
+			// the size of a ProtoRequestBody is always known
+		}
+		mClient.newCall(httpRequest).enqueue(call);
+	}
+
 	@Override
 	public void run() {
 		RequestBody body = RequestBody.create(null, RequestEnvelope.newBuilder().build().toByteArray());
@@ -214,71 +765,217 @@ public class RequestHandler implements Runnable {
 				.post(body)
 				.build();
 		try {
-			mClient.newCall(versionRequest).execute();
+			mClient.newCall(versionRequest).execute().close();
 		} catch (IOException e) {
+			mMetrics.onError(null, e);
 		}
 
 		AsyncServerRequest<GeneratedMessage, Object> request = null;
-		AuthTicket authTicket = null;
+		AsyncServerRequest<GeneratedMessage, Object> next = null;
 		while (true) {
-			try {
-				request = mWorkQueue.take();
-			} catch (Throwable ignored) {
-				// Ignore
+			if (next != null) {
+				request = next;
+				next = null;
+			} else {
+				try {
+					request = mWorkQueue.take();
+				} catch (Throwable e) {
+					mMetrics.onError(null, e);
+				}
 			}
 
 			if (request == null) {
 				continue;
 			}
+			if (isCancelled(request)) {
+				dropBoundedRequests(request);
+				request = null;
+				continue;
+			}
 
-			ArrayList<InternalServerRequest> serverRequests = new ArrayList<>();
+			acquireSlot();
+			pace();
 
-			serverRequests.add(new InternalServerRequest(request.getType(), request.getRequest()));
+			RequestBatch batch = new RequestBatch();
+			batch.add(request);
+			next = fillBatch(batch);
 
-			for (InternalServerRequest extra : request.getBoundedRequests()) {
-				serverRequests.add(extra);
+			send(new EnvelopeCall(batch));
+			request = null;
+		}
+	}
+
+	/**
+	 * An envelope waiting for its response, holding the slot it took until the exchange is over
+	 */
+	private class EnvelopeCall implements Callback {
+		private final List<AsyncServerRequest<GeneratedMessage, Object>> requests;
+		private final InternalServerRequest[] serverRequests;
+
+		private long sentAt;
+		private int redirects;
+		private int retries;
+
+		EnvelopeCall(RequestBatch batch) {
+			this.requests = batch.getRequests();
+			this.serverRequests = batch.getServerRequests();
+
+			long now = System.nanoTime();
+			for (AsyncServerRequest<GeneratedMessage, Object> request : requests) {
+				mMetrics.onStage(request.getType(), RequestMetrics.Stage.QUEUE, now - request.queuedAt);
+			}
+		}
+
+		void record(RequestMetrics.Stage stage, long nanos) {
+			for (AsyncServerRequest<GeneratedMessage, Object> request : requests) {
+				mMetrics.onStage(request.getType(), stage, nanos);
 			}
+		}
 
-			final InternalServerRequest[] arrayServerRequests =
-					serverRequests.toArray(new InternalServerRequest[serverRequests.size()]);
+		@Override
+		public void onFailure(Call call, IOException e) {
+			record(RequestMetrics.Stage.HTTP, System.nanoTime() - sentAt);
+			retryOrFail(new TransientServerException(e.toString(), e));
+		}
 
+		@Override
+		public void onResponse(Call call, Response response) {
+			boolean redirect;
 			try {
-				authTicket = internalSendServerRequests(authTicket, arrayServerRequests);
-				final AsyncServerRequest<GeneratedMessage,Object> current = request;
-				mDecoupler.execute(new Runnable() {
-					@Override
-					public void run() {
-						try {
-							current.fire(arrayServerRequests[0].getData());
-						} catch (InvalidProtocolBufferException e) {
-							current.fire(e);
-						}
+				redirect = handleResponse(response, serverRequests);
+			} catch (TransientServerException e) {
+				record(RequestMetrics.Stage.HTTP, System.nanoTime() - sentAt);
+				retryOrFail(e);
+				return;
+			} catch (RemoteServerException | LoginFailedException e) {
+				record(RequestMetrics.Stage.HTTP, System.nanoTime() - sentAt);
+				fail(e);
+				return;
+			} catch (RuntimeException e) {
+				// an unexpected envelope must not keep the slot, the handler would stall
+				record(RequestMetrics.Stage.HTTP, System.nanoTime() - sentAt);
+				fail(e);
+				return;
+			} finally {
+				response.close();
+			}
+			record(RequestMetrics.Stage.HTTP, System.nanoTime() - sentAt);
+
+			if (redirect) {
+				mMetrics.onRedirect();
+				if (!isRedirectAllowed(++redirects)) {
+					fail(new RemoteServerException("Too many redirects"));
+					return;
+				}
+				send(this);
+			} else {
+				complete();
+			}
+		}
+
+		/**
+		 * Sends the envelope again after the delay of the retry policy if every request of it is read-only,
+		 * otherwise fails with the given error. The envelope keeps its in flight slot while waiting.
+		 */
+		void retryOrFail(TransientServerException e) {
+			List<RequestType> types = new ArrayList<>();
+			for (AsyncServerRequest<GeneratedMessage, Object> request : requests) {
+				types.add(request.getType());
+			}
+
+			long delay = getRetryDelay(mRetryPolicy, types, ++retries);
+			if (delay < 0) {
+				fail(e);
+				return;
+			}
+
+			for (AsyncServerRequest<GeneratedMessage, Object> request : requests) {
+				mMetrics.onRetry(request.getType());
+			}
+			mRetryScheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					send(EnvelopeCall.this);
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		}
 
+		void dropBoundedRequests() {
+			for (AsyncServerRequest<GeneratedMessage, Object> request : requests) {
+				RequestHandler.this.dropBoundedRequests(request);
+			}
+		}
+
+		/**
+		 * Takes the duplicates of every request before any callback runs, so a failing callback cannot leave
+		 * later identical requests waiting for a response which never comes
+		 */
+		List<List<AsyncServerRequest<?, ?>>> takeAllDuplicates() {
+			List<List<AsyncServerRequest<?, ?>>> duplicates = new ArrayList<>(requests.size());
+			for (AsyncServerRequest<GeneratedMessage, Object> request : requests) {
+				duplicates.add(takeDuplicates(request));
+			}
+			return duplicates;
+		}
+
+		void fail(final Exception e) {
+			dropBoundedRequests();
+			releaseSlot();
+			mDecoupler.execute(new Runnable() {
+				@Override
+				public void run() {
+					List<List<AsyncServerRequest<?, ?>>> duplicates = takeAllDuplicates();
+					for (int i = 0; i != requests.size(); i++) {
+						fireSafely(requests.get(i), duplicates.get(i), e);
+					}
+				}
+			});
+		}
+
+		void complete() {
+			releaseSlot();
+			mDecoupler.execute(new Runnable() {
+				@Override
+				public void run() {
+					// primary requests come first, in the same order
+					int primaries = requests.size();
+					List<List<AsyncServerRequest<?, ?>>> duplicates = takeAllDuplicates();
+					try {
+						for (int i = 0; i != primaries; i++) {
+							AsyncServerRequest<GeneratedMessage, Object> request = requests.get(i);
+							ByteString data;
+							try {
+								data = serverRequests[i].getData();
+							} catch (InvalidProtocolBufferException e) {
+								fireSafely(request, duplicates.get(i), e);
+								continue;
+							}
+							fireSafely(request, duplicates.get(i), data);
+						}
+					} finally {
 						// Assuming all the bunded requests are commons
-						if (arrayServerRequests.length > 1) {
-							for (int i = 1; i != arrayServerRequests.length; i++) {
-								try {
-									CommonRequest.parse(mApi, arrayServerRequests[i].getType(),
-											arrayServerRequests[i].getData());
-								} catch (InvalidProtocolBufferException e) {
-									//TODO: notify error even in case of common requests?
-								}
+						for (int i = primaries; i < serverRequests.length; i++) {
+							try {
+								CommonRequest.parse(mApi, serverRequests[i].getType(),
+										serverRequests[i].getData());
+							} catch (InvalidProtocolBufferException e) {
+								mMetrics.onError(serverRequests[i].getType(), e);
 							}
 						}
 					}
-				});
-
-				continue;
-			} catch (RemoteServerException | LoginFailedException e) {
-				request.fire(e);
-				continue;
-			} finally {
-				try {
-					Thread.sleep(350);
-				} catch (InterruptedException ignored) {
-					// Ignore
 				}
-			}
+			});
+		}
+	}
+
+	/**
+	 * A failure which may not happen again: a network error, a server error or a malformed response
+	 */
+	private static class TransientServerException extends RemoteServerException {
+		private static final long serialVersionUID = 1L;
+
+		TransientServerException(String reason, Throwable exception) {
+			super(reason, exception);
 		}
 	}
 }
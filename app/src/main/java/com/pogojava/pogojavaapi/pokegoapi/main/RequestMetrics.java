@@ -0,0 +1,94 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
+
+/**
+ * Receives timings and counters from the request pipeline. Methods are called from the request, http and
+ * callback threads and must not block.
+ */
+public interface RequestMetrics {
+	/**
+	 * Steps a request goes through.
+	 */
+	enum Stage {
+		/**
+		 * From the request being queued to its envelope being built.
+		 */
+		QUEUE,
+		/**
+		 * Envelope and signature build, shared by every request of the envelope.
+		 */
+		BUILD,
+		/**
+		 * From the envelope being sent to its response being read, shared by every request of the envelope.
+		 */
+		HTTP,
+		/**
+		 * Parsing of the response payload and conversion of the result.
+		 */
+		PARSE,
+		/**
+		 * Execution of the callback.
+		 */
+		CALLBACK
+	}
+
+	/**
+	 * A request went through a stage.
+	 *
+	 * @param type  the request type
+	 * @param stage the stage
+	 * @param nanos time spent in the stage
+	 */
+	void onStage(RequestType type, Stage stage, long nanos);
+
+	/**
+	 * An envelope was sent.
+	 *
+	 * @param bytes size of the request envelope
+	 */
+	void onBytesSent(long bytes);
+
+	/**
+	 * A response envelope was read.
+	 *
+	 * @param bytes size of the response envelope
+	 */
+	void onBytesReceived(long bytes);
+
+	/**
+	 * The server asked to send an envelope again to another endpoint.
+	 */
+	void onRedirect();
+
+	/**
+	 * An envelope holding a request is sent again after a transient failure.
+	 *
+	 * @param type the request type
+	 */
+	void onRetry(RequestType type);
+
+	/**
+	 * A request failed.
+	 *
+	 * @param type  the request type, null for errors not tied to a request
+	 * @param error the error
+	 */
+	void onError(RequestType type, Throwable error);
+}
@@ -0,0 +1,80 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import java.util.EnumSet;
+
+import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
+
+/**
+ * Lanes of the request queue, a queued request is sent before the ones of the lanes below it.
+ */
+public enum RequestPriority {
+	/**
+	 * Requests the player is waiting for: encounters, catches, pokestops and gyms.
+	 */
+	INTERACTIVE,
+	/**
+	 * Refreshes of the map, the player and the settings.
+	 */
+	BACKGROUND,
+	/**
+	 * Inventory management sent in bulk: transfers, evolutions, power ups and item recycling.
+	 */
+	BULK;
+
+	private static final EnumSet<RequestType> INTERACTIVE_TYPES = EnumSet.of(
+			RequestType.ENCOUNTER,
+			RequestType.DISK_ENCOUNTER,
+			RequestType.INCENSE_ENCOUNTER,
+			RequestType.CATCH_POKEMON,
+			RequestType.USE_ITEM_CAPTURE,
+			RequestType.FORT_SEARCH,
+			RequestType.FORT_DETAILS,
+			RequestType.ADD_FORT_MODIFIER,
+			RequestType.GET_GYM_DETAILS,
+			RequestType.FORT_DEPLOY_POKEMON,
+			RequestType.START_GYM_BATTLE,
+			RequestType.ATTACK_GYM,
+			RequestType.USE_ITEM_POTION,
+			RequestType.USE_ITEM_REVIVE,
+			RequestType.VERIFY_CHALLENGE);
+
+	private static final EnumSet<RequestType> BULK_TYPES = EnumSet.of(
+			RequestType.RELEASE_POKEMON,
+			RequestType.EVOLVE_POKEMON,
+			RequestType.UPGRADE_POKEMON,
+			RequestType.RECYCLE_INVENTORY_ITEM,
+			RequestType.NICKNAME_POKEMON,
+			RequestType.SET_FAVORITE_POKEMON);
+
+	/**
+	 * Returns the lane a request type uses when none is given.
+	 *
+	 * @param type the request type
+	 * @return the default priority of the type
+	 */
+	public static RequestPriority of(RequestType type) {
+		if (INTERACTIVE_TYPES.contains(type)) {
+			return INTERACTIVE;
+		}
+		if (BULK_TYPES.contains(type)) {
+			return BULK;
+		}
+		return BACKGROUND;
+	}
+}
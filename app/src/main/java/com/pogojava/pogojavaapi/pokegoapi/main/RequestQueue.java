@@ -0,0 +1,184 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queue of requests waiting to be sent, with one FIFO lane per priority. The head of a lower lane which has
+ * waited longer than the starvation threshold is taken before the higher lanes, so bulk work still moves
+ * while interactive requests keep coming.
+ *
+ * @param <E> the requests
+ */
+class RequestQueue<E> {
+	/**
+	 * Default time after which a waiting request is taken regardless of its priority.
+	 */
+	static final long DEFAULT_STARVATION_THRESHOLD = 5000;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final List<ArrayDeque<Entry<E>>> lanes;
+	private volatile long starvationThreshold = DEFAULT_STARVATION_THRESHOLD;
+	private int size;
+
+	RequestQueue() {
+		RequestPriority[] priorities = RequestPriority.values();
+		lanes = new ArrayList<>(priorities.length);
+		for (int i = 0; i < priorities.length; i++) {
+			lanes.add(new ArrayDeque<Entry<E>>());
+		}
+	}
+
+	/**
+	 * Adds a request at the end of the lane of its priority.
+	 *
+	 * @param request  the request
+	 * @param priority the lane
+	 */
+	void offer(E request, RequestPriority priority) {
+		lock.lock();
+		try {
+			lanes.get(priority.ordinal()).add(new Entry<>(request, System.currentTimeMillis()));
+			size++;
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits for a request.
+	 *
+	 * @return the next request
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	E take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (size == 0) {
+				notEmpty.await();
+			}
+			return next();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits up to the given time for a request.
+	 *
+	 * @param timeout the maximum time to wait
+	 * @param unit    the unit of the timeout
+	 * @return the next request, or null if none came
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (size == 0) {
+				if (nanos <= 0) {
+					return null;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			return next();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the next request, or null if the queue is empty
+	 */
+	E poll() {
+		lock.lock();
+		try {
+			return size == 0 ? null : next();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	int size() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	int size(RequestPriority priority) {
+		lock.lock();
+		try {
+			return lanes.get(priority.ordinal()).size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	void setStarvationThreshold(long starvationThreshold) {
+		this.starvationThreshold = starvationThreshold;
+	}
+
+	long getStarvationThreshold() {
+		return starvationThreshold;
+	}
+
+	private E next() {
+		long starvedBefore = System.currentTimeMillis() - starvationThreshold;
+		ArrayDeque<Entry<E>> lane = null;
+		long oldest = Long.MAX_VALUE;
+		for (int i = 1; i < lanes.size(); i++) {
+			Entry<E> head = lanes.get(i).peek();
+			if (head != null && head.enqueued <= starvedBefore && head.enqueued < oldest) {
+				oldest = head.enqueued;
+				lane = lanes.get(i);
+			}
+		}
+
+		if (lane == null) {
+			for (ArrayDeque<Entry<E>> candidate : lanes) {
+				if (!candidate.isEmpty()) {
+					lane = candidate;
+					break;
+				}
+			}
+		}
+
+		size--;
+		return lane.poll().request;
+	}
+
+	private static final class Entry<E> {
+		private final E request;
+		private final long enqueued;
+
+		private Entry(E request, long enqueued) {
+			this.request = request;
+			this.enqueued = enqueued;
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
+
+/**
+ * Classification of request types by the effect they have on the server.
+ */
+public final class RequestTypes {
+	/**
+	 * Requests known to leave the player state untouched, sending one twice gives the same answer.
+	 * Encounters are left out, they open an encounter on the server.
+	 */
+	private static final Set<RequestType> READ_ONLY = EnumSet.of(
+			RequestType.GET_MAP_OBJECTS,
+			RequestType.GET_PLAYER,
+			RequestType.GET_PLAYER_PROFILE,
+			RequestType.GET_INVENTORY,
+			RequestType.GET_GYM_DETAILS,
+			RequestType.FORT_DETAILS,
+			RequestType.GET_INCENSE_POKEMON,
+			RequestType.DOWNLOAD_SETTINGS,
+			RequestType.DOWNLOAD_ITEM_TEMPLATES,
+			RequestType.DOWNLOAD_REMOTE_CONFIG_VERSION,
+			RequestType.GET_ASSET_DIGEST,
+			RequestType.GET_DOWNLOAD_URLS,
+			RequestType.CHECK_CHALLENGE,
+			RequestType.CHECK_CODENAME_AVAILABLE,
+			RequestType.GET_SUGGESTED_CODENAMES
+	);
+
+	private RequestTypes() {
+	}
+
+	/**
+	 * @param type the request type
+	 * @return true if the request does not change the player state, so it can be shared or sent again
+	 */
+	public static boolean isReadOnly(RequestType type) {
+		return READ_ONLY.contains(type);
+	}
+}
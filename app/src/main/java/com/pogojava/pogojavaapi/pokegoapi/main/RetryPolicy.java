@@ -0,0 +1,31 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+/**
+ * Decides whether and when the RequestHandler sends an envelope again after a transient failure: a network
+ * error, a server error or a malformed response. Only envelopes made of read-only requests are retried.
+ */
+public interface RetryPolicy {
+	/**
+	 * Gets the delay before a retry.
+	 *
+	 * @param attempt the number of the retry, starting at 1
+	 * @return the delay in milliseconds, or a negative value to give up and report the error
+	 */
+	long getRetryDelay(int attempt);
+}
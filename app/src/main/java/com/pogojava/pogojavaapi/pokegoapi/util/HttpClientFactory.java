@@ -0,0 +1,214 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * Builds the http clients used for the game api and the login providers on top of one connection pool and
+ * dispatcher, so a TLS connection opened by one of them can be reused by the others. Clients derived here keep
+ * the interceptors, cookie jar and redirect settings of the client they come from. Response bodies are never
+ * buffered by the factory and can be streamed from {@link okhttp3.ResponseBody#source()}.
+ */
+public class HttpClientFactory {
+	public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+	public static final long DEFAULT_KEEP_ALIVE = TimeUnit.MINUTES.toMillis(5);
+	public static final long DEFAULT_CONNECT_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+	public static final long DEFAULT_READ_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+	public static final long DEFAULT_WRITE_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+	private static HttpClientFactory defaultFactory;
+
+	private final ConnectionPool connectionPool;
+	private final Dispatcher dispatcher;
+	private final OkHttpClient client;
+	private final StatsInterceptor stats = new StatsInterceptor();
+
+	/**
+	 * Creates a factory with the default pool size, keep alive and timeouts.
+	 */
+	public HttpClientFactory() {
+		this(DEFAULT_MAX_IDLE_CONNECTIONS, DEFAULT_KEEP_ALIVE,
+				DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_WRITE_TIMEOUT);
+	}
+
+	/**
+	 * Creates a factory.
+	 *
+	 * @param maxIdleConnections idle connections kept in the pool
+	 * @param keepAlive          how long an idle connection is kept, in milliseconds
+	 * @param connectTimeout     connect timeout in milliseconds
+	 * @param readTimeout        read timeout in milliseconds
+	 * @param writeTimeout       write timeout in milliseconds
+	 */
+	public HttpClientFactory(int maxIdleConnections, long keepAlive,
+							 long connectTimeout, long readTimeout, long writeTimeout) {
+		connectionPool = new ConnectionPool(maxIdleConnections, keepAlive, TimeUnit.MILLISECONDS);
+		dispatcher = new Dispatcher();
+		client = new OkHttpClient.Builder()
+				.connectionPool(connectionPool)
+				.dispatcher(dispatcher)
+				.protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+				.connectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+				.readTimeout(readTimeout, TimeUnit.MILLISECONDS)
+				.writeTimeout(writeTimeout, TimeUnit.MILLISECONDS)
+				.retryOnConnectionFailure(true)
+				.addNetworkInterceptor(stats)
+				.build();
+	}
+
+	/**
+	 * @return the factory shared by every client that does not use its own
+	 */
+	public static synchronized HttpClientFactory getDefault() {
+		if (defaultFactory == null) {
+			defaultFactory = new HttpClientFactory();
+		}
+		return defaultFactory;
+	}
+
+	/**
+	 * @return a client using the shared pool and dispatcher
+	 */
+	public OkHttpClient getClient() {
+		return client;
+	}
+
+	/**
+	 * Moves a client on the shared pool and dispatcher. Clients already derived from this factory are returned
+	 * as they are.
+	 *
+	 * @param base the client to derive from, or null for the shared client
+	 * @return a client using the shared pool and dispatcher
+	 */
+	public OkHttpClient share(OkHttpClient base) {
+		if (base == null) {
+			return client;
+		}
+		if (base.connectionPool() == connectionPool && base.dispatcher() == dispatcher
+				&& base.networkInterceptors().contains(stats)) {
+			return base;
+		}
+		OkHttpClient.Builder builder = base.newBuilder()
+				.connectionPool(connectionPool)
+				.dispatcher(dispatcher);
+		if (!base.networkInterceptors().contains(stats)) {
+			builder.addNetworkInterceptor(stats);
+		}
+		return builder.build();
+	}
+
+	public ConnectionPool getConnectionPool() {
+		return connectionPool;
+	}
+
+	public Dispatcher getDispatcher() {
+		return dispatcher;
+	}
+
+	/**
+	 * @return the number of requests that went over the network
+	 */
+	public long getRequestCount() {
+		return stats.requests.get();
+	}
+
+	/**
+	 * @return the number of connections opened, each one cost a TCP and TLS handshake
+	 */
+	public long getConnectionOpenedCount() {
+		return stats.opened.get();
+	}
+
+	/**
+	 * @return the number of requests sent over a connection opened for a previous request
+	 */
+	public long getConnectionReusedCount() {
+		return stats.reused.get();
+	}
+
+	/**
+	 * @return the share of requests that did not need a new connection, between 0 and 1
+	 */
+	public double getConnectionReuseRatio() {
+		long requests = stats.requests.get();
+		return requests == 0 ? 0 : (double) stats.reused.get() / requests;
+	}
+
+	/**
+	 * @return the number of open connections in the pool
+	 */
+	public int getConnectionCount() {
+		return connectionPool.connectionCount();
+	}
+
+	/**
+	 * @return the number of idle connections in the pool
+	 */
+	public int getIdleConnectionCount() {
+		return connectionPool.idleConnectionCount();
+	}
+
+	@Override
+	public String toString() {
+		return "requests=" + getRequestCount()
+				+ " opened=" + getConnectionOpenedCount()
+				+ " reused=" + getConnectionReusedCount()
+				+ " pool=" + getConnectionCount() + "/" + getIdleConnectionCount() + " idle";
+	}
+
+	/**
+	 * Counts connections by identity, a connection seen before means the handshake was saved
+	 */
+	private static class StatsInterceptor implements Interceptor {
+		private final Map<Connection, Boolean> seen = new WeakHashMap<>();
+		private final AtomicLong requests = new AtomicLong();
+		private final AtomicLong opened = new AtomicLong();
+		private final AtomicLong reused = new AtomicLong();
+
+		@Override
+		public Response intercept(Chain chain) throws IOException {
+			Connection connection = chain.connection();
+			requests.incrementAndGet();
+			if (connection != null) {
+				boolean known;
+				synchronized (seen) {
+					known = seen.put(connection, Boolean.TRUE) != null;
+				}
+				if (known) {
+					reused.incrementAndGet();
+				} else {
+					opened.incrementAndGet();
+				}
+			}
+			return chain.proceed(chain.request());
+		}
+	}
+}
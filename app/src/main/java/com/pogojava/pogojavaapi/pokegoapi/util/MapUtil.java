@@ -18,10 +18,11 @@ package com.pogojava.pogojavaapi.pokegoapi.util;
 import com.pogojava.pogojavaapi.pokegoapi.api.PokemonGo;
 import com.pogojava.pogojavaapi.pokegoapi.api.map.Point;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
-import java.util.TreeMap;
 
 /**
  * @author Olaf Braun - Software Development
@@ -84,17 +85,51 @@ public class MapUtil<K extends MapPoint> {
 	}
 
 	/**
-	 * Sort items map by distance
+	 * Sort items by distance to the player
 	 *
 	 * @param items the items
 	 * @param api   the api
-	 * @return the map
+	 * @return the items, closest first
 	 */
-	public Map<Double, K> sortItems(List<K> items, PokemonGo api) {
-		Map<Double, K> result = new TreeMap<>();
+	public List<K> sortItems(List<K> items, PokemonGo api) {
+		return sortItems(items, api.getLatitude(), api.getLongitude());
+	}
+
+	/**
+	 * Sort items by distance to a position, items at the same distance keep their order
+	 *
+	 * @param items     the items
+	 * @param latitude  the latitude of the position
+	 * @param longitude the longitude of the position
+	 * @return the items, closest first
+	 */
+	public List<K> sortItems(List<K> items, double latitude, double longitude) {
+		List<Distance<K>> distances = new ArrayList<>(items.size());
 		for (K point : items) {
-			result.put(distFrom(api.getLatitude(), api.getLongitude(), point.getLatitude(), point.getLongitude()), point);
+			distances.add(new Distance<>(point,
+					distFrom(latitude, longitude, point.getLatitude(), point.getLongitude())));
+		}
+		Collections.sort(distances, new Comparator<Distance<K>>() {
+			@Override
+			public int compare(Distance<K> first, Distance<K> second) {
+				return Double.compare(first.distance, second.distance);
+			}
+		});
+
+		List<K> result = new ArrayList<>(distances.size());
+		for (Distance<K> distance : distances) {
+			result.add(distance.point);
 		}
 		return result;
 	}
+
+	private static class Distance<K> {
+		private final K point;
+		private final double distance;
+
+		private Distance(K point, double distance) {
+			this.point = point;
+			this.distance = distance;
+		}
+	}
 }
@@ -0,0 +1,104 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.util;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.subjects.AsyncSubject;
+import rx.subjects.Subject;
+
+/**
+ * A PokeCallback exposing its result as an Observable, so any api method taking a callback can be composed,
+ * given a timeout or cancelled with RxJava operators instead of blocking a thread on block().
+ *
+ * <pre>
+ * ObservableCallback&lt;MapResponse&gt; callback = new ObservableCallback&lt;&gt;();
+ * api.getMap().getMapObjects(callback);
+ * callback.toObservable().timeout(10, TimeUnit.SECONDS).subscribe(...);
+ * </pre>
+ *
+ * <p>The observable emits the result and completes, or emits the error. Late subscribers get the same
+ * result. When every subscriber unsubscribed before the result arrived, the callback is cancelled and the
+ * request is dropped if it was not sent yet. Once cancelled, the observable emits a CancellationException
+ * to its subscribers, later ones included: they need a new callback and request.</p>
+ *
+ * @param <T> the type of the result
+ */
+public class ObservableCallback<T> extends PokeCallback<T> {
+	private final AsyncSubject<T> subject = AsyncSubject.create();
+	// the response and a cancellation may come from different threads
+	private final Subject<T, T> emitter = subject.toSerialized();
+	private final AtomicInteger subscribers = new AtomicInteger();
+
+	private final Observable<T> tracked = subject
+			.doOnSubscribe(new Action0() {
+				@Override
+				public void call() {
+					subscribers.incrementAndGet();
+				}
+			})
+			.doOnUnsubscribe(new Action0() {
+				@Override
+				public void call() {
+					if (subscribers.decrementAndGet() == 0 && !subject.hasCompleted()
+							&& !subject.hasThrowable()) {
+						cancel();
+					}
+				}
+			});
+
+	private final Observable<T> observable = Observable.defer(new Func0<Observable<T>>() {
+		@Override
+		public Observable<T> call() {
+			if (isCancelled() && !subject.hasCompleted() && !subject.hasThrowable()) {
+				return Observable.error(new CancellationException("The callback was cancelled"));
+			}
+			return tracked;
+		}
+	});
+
+	@Override
+	public void onResponse(T result) {
+		emitter.onNext(result);
+		emitter.onCompleted();
+	}
+
+	@Override
+	public void onError(Throwable error) {
+		emitter.onError(error);
+	}
+
+	@Override
+	public void cancel() {
+		super.cancel();
+		if (subscribers.get() > 0) {
+			// cancelled from outside, the current subscribers would otherwise wait forever
+			emitter.onError(new CancellationException("The callback was cancelled"));
+		}
+	}
+
+	/**
+	 * @return an observable emitting the result of this callback
+	 */
+	public Observable<T> toObservable() {
+		return observable;
+	}
+}
@@ -1,14 +1,17 @@
 package com.pogojava.pogojavaapi.pokegoapi.util;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.Parser;
 
-import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Created by rama on 31/08/16.
  */
 public abstract class PokeAFunc<T extends com.google.protobuf.GeneratedMessage, K> {
+	private static final ConcurrentMap<Class<?>, Parser<?>> PARSERS = new ConcurrentHashMap<>();
 
 	/**
 	 * The abstract internal callback
@@ -19,19 +22,29 @@ public abstract class PokeAFunc<T extends com.google.protobuf.GeneratedMessage,
 	public abstract K exec(T response);
 
 	/**
+	 * Parse the data with the parser of the response type and execute the callback.
+	 * The parser is resolved through reflection only the first time a given func class is used,
+	 * callers knowing the request type should rather use the {@link com.pogojava.pogojavaapi.pokegoapi.main.ParserRegistry}
 	 *
-	 * @param data the data to be parsed through reflection
+	 * @param data the data to be parsed
 	 * @return the object for the callback
 	 * @throws Throwable errors
-     */
+	 */
 	public K exec(ByteString data) throws Throwable {
-		Class<T> klass = (Class<T>)
-				((ParameterizedType) getClass().getGenericSuperclass())
-						.getActualTypeArguments()[0];
-
-		Method klassMethod = klass.getMethod("parseFrom", ByteString.class);
-		T response = (T) klassMethod.invoke(null, data);
+		return exec(getParser().parseFrom(data));
+	}
 
-		return exec(response);
+	@SuppressWarnings("unchecked")
+	private Parser<T> getParser() throws Exception {
+		Class<?> funcClass = getClass();
+		Parser<T> parser = (Parser<T>) PARSERS.get(funcClass);
+		if (parser == null) {
+			Class<T> klass = (Class<T>)
+					((ParameterizedType) funcClass.getGenericSuperclass())
+							.getActualTypeArguments()[0];
+			parser = (Parser<T>) klass.getMethod("parser").invoke(null);
+			PARSERS.putIfAbsent(funcClass, parser);
+		}
+		return parser;
 	}
 }
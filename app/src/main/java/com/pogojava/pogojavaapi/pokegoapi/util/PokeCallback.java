@@ -17,7 +17,7 @@ package com.pogojava.pogojavaapi.pokegoapi.util;
 
 import android.util.Log;
 
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -25,35 +25,31 @@ import java.util.concurrent.TimeUnit;
  */
 public abstract class PokeCallback<T> {
 
-	final Semaphore sem;
+	private final CountDownLatch done = new CountDownLatch(1);
+	private volatile boolean cancelled;
 
 	private Throwable error;
 	private T result;
 
-	protected PokeCallback() {
-		this.sem = new Semaphore(Integer.MAX_VALUE);
-		try {
-			this.sem.acquire(Integer.MAX_VALUE);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
-	}
-
 	public final void fire(T result) {
 		try {
-			this.result = result;
-			onResponse(result);
+			if (!cancelled) {
+				this.result = result;
+				onResponse(result);
+			}
 		} finally {
-			sem.release(Integer.MAX_VALUE);
+			done.countDown();
 		}
 	}
 
 	public final void fire(Throwable error) {
 		try {
-			this.error = error;
-			onError(error);
+			if (!cancelled) {
+				this.error = error;
+				onError(error);
+			}
 		} finally {
-			sem.release(Integer.MAX_VALUE);
+			done.countDown();
 		}
 	}
 
@@ -63,9 +59,33 @@ public abstract class PokeCallback<T> {
 
 	public abstract void onResponse(T result);
 
+	/**
+	 * Cancels the callback: it will not be notified anymore, threads waiting in block() are released and a
+	 * request which was not sent yet is dropped.
+	 */
+	public void cancel() {
+		cancelled = true;
+		done.countDown();
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
 	public PokeCallback<T> block() {
+		return block(30, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Waits until the callback is fired or cancelled.
+	 *
+	 * @param timeout the maximum time to wait
+	 * @param unit    the unit of the timeout
+	 * @return this callback
+	 */
+	public PokeCallback<T> block(long timeout, TimeUnit unit) {
 		try {
-			sem.tryAcquire(Integer.MAX_VALUE, 30, TimeUnit.SECONDS);
+			done.await(timeout, unit);
 		} catch (InterruptedException e) {
 			fire(e);
 		}
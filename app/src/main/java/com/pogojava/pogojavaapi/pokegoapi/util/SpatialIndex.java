@@ -0,0 +1,247 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.pogojava.pogojavaapi.pokegoapi.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Grid of latitude/longitude buckets over MapPoints, kept up to date as points are added, so radius and
+ * nearest neighbour queries only look at the buckets around the query point instead of sorting every item.
+ *
+ * @param <K> the type of the indexed points
+ */
+public class SpatialIndex<K extends MapPoint> {
+	/**
+	 * Default bucket size in degrees, roughly 110 meters of latitude.
+	 */
+	public static final double DEFAULT_BUCKET_SIZE = 0.001;
+
+	private static final double METERS_PER_DEGREE = 111320;
+	private static final double MAX_DISTANCE = Math.PI * 6371000;
+
+	private final double bucketSize;
+	private final long lngBuckets;
+	private final HashMap<Long, List<K>> buckets = new HashMap<>();
+	private int size;
+
+	/**
+	 * Instantiates an index with the default bucket size.
+	 */
+	public SpatialIndex() {
+		this(DEFAULT_BUCKET_SIZE);
+	}
+
+	/**
+	 * Instantiates an index.
+	 *
+	 * @param bucketSize bucket size in degrees
+	 */
+	public SpatialIndex(double bucketSize) {
+		this.bucketSize = bucketSize;
+		this.lngBuckets = (long) Math.ceil(360 / bucketSize);
+	}
+
+	/**
+	 * Adds a point to the index.
+	 *
+	 * @param point the point
+	 */
+	public synchronized void add(K point) {
+		long key = key(latIndex(point.getLatitude()), lngIndex(point.getLongitude()));
+		List<K> bucket = buckets.get(key);
+		if (bucket == null) {
+			bucket = new ArrayList<>(4);
+			buckets.put(key, bucket);
+		}
+		bucket.add(point);
+		size++;
+	}
+
+	/**
+	 * Adds points to the index.
+	 *
+	 * @param points the points
+	 */
+	public synchronized void addAll(Collection<? extends K> points) {
+		for (K point : points) {
+			add(point);
+		}
+	}
+
+	/**
+	 * Removes a point from the index.
+	 *
+	 * @param point the point
+	 * @return true if the point was indexed
+	 */
+	public synchronized boolean remove(K point) {
+		long key = key(latIndex(point.getLatitude()), lngIndex(point.getLongitude()));
+		List<K> bucket = buckets.get(key);
+		if (bucket == null || !bucket.remove(point)) {
+			return false;
+		}
+		if (bucket.isEmpty()) {
+			buckets.remove(key);
+		}
+		size--;
+		return true;
+	}
+
+	/**
+	 * Removes every point.
+	 */
+	public synchronized void clear() {
+		buckets.clear();
+		size = 0;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the points within a distance, closest first.
+	 *
+	 * @param latitude  latitude of the center
+	 * @param longitude longitude of the center
+	 * @param meters    the radius in meters
+	 * @return the points within the radius
+	 */
+	public synchronized List<K> withinRadius(double latitude, double longitude, double meters) {
+		List<Neighbor<K>> found = collect(latitude, longitude, meters);
+		Collections.sort(found);
+		List<K> result = new ArrayList<>(found.size());
+		for (Neighbor<K> neighbor : found) {
+			result.add(neighbor.point);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the k points closest to a position, closest first.
+	 *
+	 * @param latitude  latitude of the center
+	 * @param longitude longitude of the center
+	 * @param k         the number of points
+	 * @return up to k points
+	 */
+	public synchronized List<K> nearest(double latitude, double longitude, int k) {
+		List<Neighbor<K>> found = new ArrayList<>();
+		if (k > 0 && size > 0) {
+			double meters = bucketSize * METERS_PER_DEGREE;
+			found = collect(latitude, longitude, meters);
+			// every point closer than the radius is found, so k of them are the k nearest overall
+			while (found.size() < Math.min(k, size) && meters < MAX_DISTANCE) {
+				meters *= 2;
+				found = collect(latitude, longitude, meters);
+			}
+			Collections.sort(found);
+		}
+		List<K> result = new ArrayList<>(Math.min(k, found.size()));
+		for (int i = 0; i < found.size() && i < k; i++) {
+			result.add(found.get(i).point);
+		}
+		return result;
+	}
+
+	private List<Neighbor<K>> collect(double latitude, double longitude, double meters) {
+		List<Neighbor<K>> found = new ArrayList<>();
+		if (buckets.isEmpty()) {
+			return found;
+		}
+		double latSpan = meters / METERS_PER_DEGREE;
+		long minLat = latIndex(Math.max(-90, latitude - latSpan));
+		long maxLat = latIndex(Math.min(90, latitude + latSpan));
+
+		// longitude degrees shrink towards the poles, past them every longitude is in range
+		double maxAbsLat = Math.min(90, Math.abs(latitude) + latSpan);
+		double cos = Math.cos(Math.toRadians(maxAbsLat));
+		long minLng;
+		long maxLng;
+		if (cos <= 0 || meters / (METERS_PER_DEGREE * cos) >= 180) {
+			minLng = 0;
+			maxLng = lngBuckets - 1;
+		} else {
+			double lngSpan = meters / (METERS_PER_DEGREE * cos);
+			minLng = lngIndex(longitude) - (long) Math.ceil(lngSpan / bucketSize);
+			maxLng = lngIndex(longitude) + (long) Math.ceil(lngSpan / bucketSize);
+			if (maxLng - minLng >= lngBuckets) {
+				minLng = 0;
+				maxLng = lngBuckets - 1;
+			}
+		}
+
+		// scan the buckets themselves when the area covers more buckets than are in use
+		if ((maxLat - minLat + 1) * (maxLng - minLng + 1) > buckets.size()) {
+			for (List<K> bucket : buckets.values()) {
+				addWithin(bucket, latitude, longitude, meters, found);
+			}
+			return found;
+		}
+
+		for (long lat = minLat; lat <= maxLat; lat++) {
+			for (long lng = minLng; lng <= maxLng; lng++) {
+				List<K> bucket = buckets.get(key(lat, ((lng % lngBuckets) + lngBuckets) % lngBuckets));
+				if (bucket != null) {
+					addWithin(bucket, latitude, longitude, meters, found);
+				}
+			}
+		}
+		return found;
+	}
+
+	private static <K extends MapPoint> void addWithin(List<K> bucket, double latitude, double longitude,
+			double meters, List<Neighbor<K>> found) {
+		for (K point : bucket) {
+			double distance = MapUtil.distFrom(latitude, longitude, point.getLatitude(), point.getLongitude());
+			if (distance <= meters) {
+				found.add(new Neighbor<>(point, distance));
+			}
+		}
+	}
+
+	private long latIndex(double latitude) {
+		return (long) Math.floor((latitude + 90) / bucketSize);
+	}
+
+	private long lngIndex(double longitude) {
+		return ((long) Math.floor((longitude + 180) / bucketSize)) % lngBuckets;
+	}
+
+	private long key(long latIndex, long lngIndex) {
+		return latIndex * lngBuckets + lngIndex;
+	}
+
+	private static final class Neighbor<K> implements Comparable<Neighbor<K>> {
+		private final K point;
+		private final double distance;
+
+		private Neighbor(K point, double distance) {
+			this.point = point;
+			this.distance = distance;
+		}
+
+		@Override
+		public int compareTo(Neighbor<K> other) {
+			return Double.compare(distance, other.distance);
+		}
+	}
+}
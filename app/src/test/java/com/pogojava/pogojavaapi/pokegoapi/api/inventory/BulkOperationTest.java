@@ -0,0 +1,130 @@
+package com.pogojava.pogojavaapi.pokegoapi.api.inventory;
+
+import com.google.protobuf.GeneratedMessage;
+import com.pogojava.pogojavaapi.pokegoapi.api.pokemon.Pokemon;
+import com.pogojava.pogojavaapi.pokegoapi.util.PokeAFunc;
+import com.pogojava.pogojavaapi.pokegoapi.util.PokeCallback;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import POGOProtos.Data.PokemonDataOuterClass.PokemonData;
+import POGOProtos.Enums.PokemonIdOuterClass.PokemonId;
+import POGOProtos.Networking.Requests.Messages.ReleasePokemonMessageOuterClass.ReleasePokemonMessage;
+import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
+import POGOProtos.Networking.Responses.ReleasePokemonResponseOuterClass.ReleasePokemonResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks a bulk operation sends each pokemon once, the commons with the last one, and aggregates the results.
+ */
+public class BulkOperationTest {
+
+	@Test
+	public void sendsEachPokemonOnceAndAggregates() throws Throwable {
+		RecordingOperation operation = new RecordingOperation();
+		Pokemon first = new Pokemon(null, PokemonData.newBuilder().setId(1).setPokemonId(PokemonId.PIDGEY).build());
+		Pokemon second = new Pokemon(null, PokemonData.newBuilder().setId(2).setPokemonId(PokemonId.PIDGEY).build());
+		Pokemon third = new Pokemon(null, PokemonData.newBuilder().setId(3).setPokemonId(PokemonId.PIDGEY).build());
+		RecordingCallback callback = new RecordingCallback();
+
+		operation.start(Arrays.asList(first, second, first, third), callback);
+
+		assertEquals(3, operation.callbacks.size());
+		assertEquals(Arrays.asList(false, false, true), operation.last);
+		assertEquals(3, ((ReleasePokemonMessage) operation.messages.get(2)).getPokemonId());
+
+		operation.answer(0, ReleasePokemonResponse.Result.SUCCESS);
+		operation.callbacks.get(1).fire(new IllegalStateException("timeout"));
+		assertNull(callback.getResult());
+		operation.answer(2, ReleasePokemonResponse.Result.FAILED);
+
+		assertEquals(Arrays.asList(1, 2, 3), callback.done);
+		BulkResult<ReleasePokemonResponse.Result> result = callback.block().getResult();
+		assertEquals(3, result.getTotal());
+		assertEquals(ReleasePokemonResponse.Result.SUCCESS, result.getResult(1));
+		assertEquals(ReleasePokemonResponse.Result.FAILED, result.getResult(3));
+		assertNull(result.getResult(2));
+		assertTrue(result.getErrors().containsKey(2L));
+		assertEquals(2, result.getResults().size());
+	}
+
+	@Test
+	public void cancellingDropsTheRemainingRequests() {
+		RecordingOperation operation = new RecordingOperation();
+		RecordingCallback callback = new RecordingCallback();
+		operation.start(Arrays.asList(
+				new Pokemon(null, PokemonData.newBuilder().setId(1).setPokemonId(PokemonId.PIDGEY).build()),
+				new Pokemon(null, PokemonData.newBuilder().setId(2).setPokemonId(PokemonId.PIDGEY).build())),
+				callback);
+
+		assertFalse(operation.callbacks.get(1).isCancelled());
+		callback.cancel();
+		assertTrue(operation.callbacks.get(1).isCancelled());
+		assertSame(callback, callback.block());
+	}
+
+	private static class RecordingOperation
+			extends BulkOperation<ReleasePokemonResponse, ReleasePokemonResponse.Result> {
+		private final List<GeneratedMessage> messages = new ArrayList<>();
+		private final List<PokeAFunc<ReleasePokemonResponse, ReleasePokemonResponse.Result>> funcs =
+				new ArrayList<>();
+		private final List<PokeCallback<ReleasePokemonResponse.Result>> callbacks = new ArrayList<>();
+		private final List<Boolean> last = new ArrayList<>();
+
+		RecordingOperation() {
+			super(null, RequestType.RELEASE_POKEMON);
+		}
+
+		@Override
+		GeneratedMessage createMessage(Pokemon pokemon) {
+			return ReleasePokemonMessage.newBuilder().setPokemonId(pokemon.getId()).build();
+		}
+
+		@Override
+		ReleasePokemonResponse.Result exec(Pokemon pokemon, ReleasePokemonResponse response) {
+			return response.getResult();
+		}
+
+		@Override
+		void send(GeneratedMessage message, PokeAFunc<ReleasePokemonResponse, ReleasePokemonResponse.Result> func,
+				PokeCallback<ReleasePokemonResponse.Result> callback, boolean last) {
+			messages.add(message);
+			funcs.add(func);
+			callbacks.add(callback);
+			this.last.add(last);
+		}
+
+		void answer(int index, ReleasePokemonResponse.Result result) {
+			ReleasePokemonResponse response = ReleasePokemonResponse.newBuilder().setResult(result).build();
+			callbacks.get(index).fire(funcs.get(index).exec(response));
+		}
+	}
+
+	private static class RecordingCallback extends BulkCallback<ReleasePokemonResponse.Result> {
+		private final List<Integer> done = new ArrayList<>();
+
+		@Override
+		public void onPokemonResult(Pokemon pokemon, ReleasePokemonResponse.Result result, int done, int total) {
+			assertEquals(3, total);
+			this.done.add(done);
+		}
+
+		@Override
+		public void onPokemonError(Pokemon pokemon, Throwable error, int done, int total) {
+			this.done.add(done);
+		}
+
+		@Override
+		public void onResponse(BulkResult<ReleasePokemonResponse.Result> result) {
+		}
+	}
+}
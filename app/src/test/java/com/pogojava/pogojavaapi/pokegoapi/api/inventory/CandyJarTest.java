@@ -0,0 +1,23 @@
+package com.pogojava.pogojavaapi.pokegoapi.api.inventory;
+
+import org.junit.Test;
+
+import POGOProtos.Enums.PokemonFamilyIdOuterClass.PokemonFamilyId;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the candy counters never go below zero.
+ */
+public class CandyJarTest {
+
+	@Test
+	public void removeCandyStopsAtZero() {
+		CandyJar jar = new CandyJar(null);
+		assertEquals(0, jar.getCandies(PokemonFamilyId.FAMILY_PIDGEY));
+		jar.setCandy(PokemonFamilyId.FAMILY_PIDGEY, 30);
+		assertEquals(5, jar.removeCandy(PokemonFamilyId.FAMILY_PIDGEY, 25));
+		assertEquals(0, jar.removeCandy(PokemonFamilyId.FAMILY_PIDGEY, 25));
+		assertEquals(0, jar.getCandies(PokemonFamilyId.FAMILY_PIDGEY));
+	}
+}
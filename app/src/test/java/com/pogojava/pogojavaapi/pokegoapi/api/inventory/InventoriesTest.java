@@ -0,0 +1,137 @@
+package com.pogojava.pogojavaapi.pokegoapi.api.inventory;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import POGOProtos.Data.PokemonDataOuterClass.PokemonData;
+import POGOProtos.Enums.PokemonFamilyIdOuterClass.PokemonFamilyId;
+import POGOProtos.Enums.PokemonIdOuterClass.PokemonId;
+import POGOProtos.Inventory.CandyOuterClass.Candy;
+import POGOProtos.Inventory.EggIncubatorOuterClass.EggIncubator;
+import POGOProtos.Inventory.EggIncubatorsOuterClass.EggIncubators;
+import POGOProtos.Inventory.InventoryDeltaOuterClass.InventoryDelta;
+import POGOProtos.Inventory.InventoryItemDataOuterClass.InventoryItemData;
+import POGOProtos.Inventory.InventoryItemOuterClass.InventoryItem;
+import POGOProtos.Networking.Responses.GetInventoryResponseOuterClass.GetInventoryResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks inventory deltas add, update and delete by key and report what they changed.
+ */
+public class InventoriesTest {
+
+	@Test
+	public void deltaAppliesDeletions() {
+		Inventories inventories = new Inventories(null);
+		InventoryChanges changes = inventories.updateInventories(response(1000,
+				data(InventoryItemData.newBuilder().setPokemonData(pokemon(1, PokemonId.PIDGEY))),
+				data(InventoryItemData.newBuilder().setPokemonData(PokemonData.newBuilder().setId(2).setIsEgg(true))),
+				data(InventoryItemData.newBuilder().setCandy(Candy.newBuilder()
+						.setFamilyId(PokemonFamilyId.FAMILY_PIDGEY).setCandy(12))),
+				data(InventoryItemData.newBuilder().setEggIncubators(EggIncubators.newBuilder()
+						.addEggIncubator(EggIncubator.newBuilder().setId("basic"))
+						.addEggIncubator(EggIncubator.newBuilder().setId("bought"))))));
+
+		assertEquals(1, inventories.getPokebank().size());
+		assertEquals(1, inventories.getHatchery().getEggs().size());
+		assertEquals(2, inventories.getIncubators().size());
+		assertTrue(changes.getUpdatedPokemon().contains(1L));
+		assertTrue(changes.getCandies().contains(PokemonFamilyId.FAMILY_PIDGEY));
+		assertEquals(1000, changes.getTimestamp());
+
+		changes = inventories.updateInventories(response(2000,
+				deleted(1),
+				deleted(2),
+				data(InventoryItemData.newBuilder().setEggIncubators(EggIncubators.newBuilder()
+						.addEggIncubator(EggIncubator.newBuilder().setId("basic"))))));
+
+		assertEquals(0, inventories.getPokebank().size());
+		assertNull(inventories.getHatchery().getEgg(2));
+		assertEquals(1, inventories.getIncubators().size());
+		assertTrue(changes.getRemovedPokemon().contains(1L));
+		assertTrue(changes.getRemovedEggs().contains(2L));
+		assertTrue(changes.getRemovedIncubators().contains("bought"));
+		assertTrue(changes.getItems().isEmpty());
+		assertEquals(2000, inventories.getLastInventoryUpdate());
+	}
+
+	@Test
+	public void olderDeltaIsIgnored() {
+		Inventories inventories = new Inventories(null);
+		GetInventoryResponse older = response(1000,
+				data(InventoryItemData.newBuilder().setPokemonData(pokemon(1, PokemonId.PIDGEY))),
+				data(InventoryItemData.newBuilder().setCandy(Candy.newBuilder()
+						.setFamilyId(PokemonFamilyId.FAMILY_PIDGEY).setCandy(12))));
+		GetInventoryResponse newer = response(2000,
+				deleted(1),
+				data(InventoryItemData.newBuilder().setCandy(Candy.newBuilder()
+						.setFamilyId(PokemonFamilyId.FAMILY_PIDGEY).setCandy(15))));
+
+		inventories.updateInventories(newer);
+		InventoryChanges changes = inventories.updateInventories(older);
+
+		assertEquals(0, inventories.getPokebank().size());
+		assertEquals(15, inventories.getCandyjar().getCandies(PokemonFamilyId.FAMILY_PIDGEY));
+		assertEquals(2000, inventories.getLastInventoryUpdate());
+		assertTrue(changes.getUpdatedPokemon().isEmpty());
+		assertTrue(changes.getCandies().isEmpty());
+	}
+
+	@Test
+	public void listenersReceiveFilteredEvents() {
+		Inventories inventories = new Inventories(null);
+		final List<InventoryEvent> events = new ArrayList<>();
+		inventories.addListener(new InventoryListener() {
+			@Override
+			public void onInventoryEvent(InventoryEvent event) {
+				events.add(event);
+			}
+		}, InventoryEvent.Type.POKEMON_ADDED, InventoryEvent.Type.POKEMON_UPDATED,
+				InventoryEvent.Type.POKEMON_REMOVED, InventoryEvent.Type.CANDY_CHANGED);
+
+		inventories.updateInventories(response(1000,
+				data(InventoryItemData.newBuilder().setPokemonData(pokemon(1, PokemonId.PIDGEY))),
+				data(InventoryItemData.newBuilder().setPokemonData(PokemonData.newBuilder().setId(2).setIsEgg(true))),
+				data(InventoryItemData.newBuilder().setCandy(Candy.newBuilder()
+						.setFamilyId(PokemonFamilyId.FAMILY_PIDGEY).setCandy(12)))));
+		inventories.updateInventories(response(2000,
+				data(InventoryItemData.newBuilder().setPokemonData(pokemon(1, PokemonId.PIDGEY))),
+				deleted(1)));
+
+		assertEquals(4, events.size());
+		assertEquals(InventoryEvent.Type.POKEMON_ADDED, events.get(0).getType());
+		assertEquals(1, events.get(0).getPokemon().getId());
+		assertEquals(InventoryEvent.Type.CANDY_CHANGED, events.get(1).getType());
+		assertEquals(12, events.get(1).getCount());
+		assertEquals(InventoryEvent.Type.POKEMON_UPDATED, events.get(2).getType());
+		assertEquals(InventoryEvent.Type.POKEMON_REMOVED, events.get(3).getType());
+		assertEquals(1, events.get(3).getId());
+	}
+
+	private static PokemonData.Builder pokemon(long id, PokemonId species) {
+		return PokemonData.newBuilder().setId(id).setPokemonId(species).setCp(10);
+	}
+
+	private static InventoryItem data(InventoryItemData.Builder data) {
+		return InventoryItem.newBuilder().setInventoryItemData(data).build();
+	}
+
+	private static InventoryItem deleted(long id) {
+		return InventoryItem.newBuilder()
+				.setDeletedItem(InventoryItem.DeletedItem.newBuilder().setPokemonId(id))
+				.build();
+	}
+
+	private static GetInventoryResponse response(long timestamp, InventoryItem... items) {
+		InventoryDelta.Builder delta = InventoryDelta.newBuilder().setNewTimestampMs(timestamp);
+		for (InventoryItem item : items) {
+			delta.addInventoryItems(item);
+		}
+		return GetInventoryResponse.newBuilder().setSuccess(true).setInventoryDelta(delta).build();
+	}
+}
@@ -0,0 +1,42 @@
+package com.pogojava.pogojavaapi.pokegoapi.api.inventory;
+
+import org.junit.Test;
+
+import POGOProtos.Inventory.Item.ItemDataOuterClass.ItemData;
+import POGOProtos.Inventory.Item.ItemIdOuterClass.ItemId;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks the item counters keep their total and never go below zero.
+ */
+public class ItemBagTest {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnrecognizedItems() {
+		new ItemBag(null).addItem(ItemData.newBuilder().setItemIdValue(9999).setCount(1).build());
+	}
+
+	@Test
+	public void countsAndTotal() {
+		ItemBag bag = new ItemBag(null);
+		bag.addItem(ItemData.newBuilder().setItemId(ItemId.ITEM_POKE_BALL).setCount(20).build());
+		bag.addItem(ItemData.newBuilder().setItemId(ItemId.ITEM_POTION).setCount(5).build());
+		assertEquals(25, bag.getItemsCount());
+		assertEquals(2, bag.getItems().size());
+
+		bag.addItem(ItemData.newBuilder().setItemId(ItemId.ITEM_POKE_BALL).setCount(10).build());
+		bag.addCount(ItemId.ITEM_GREAT_BALL, 3);
+		assertEquals(2, bag.removeCount(ItemId.ITEM_POTION, 3));
+		assertEquals(0, bag.removeCount(ItemId.ITEM_POTION, 3));
+		assertEquals(13, bag.getItemsCount());
+
+		Item missing = bag.getItem(ItemId.ITEM_REVIVE);
+		assertEquals(0, missing.getCount());
+		assertSame(missing, bag.getItem(ItemId.ITEM_REVIVE));
+		missing.setCount(4);
+		assertEquals(4, bag.getCount(ItemId.ITEM_REVIVE));
+		assertEquals(17, bag.getItemsCount());
+	}
+}
@@ -0,0 +1,109 @@
+package com.pogojava.pogojavaapi.pokegoapi.api.inventory;
+
+import com.pogojava.pogojavaapi.pokegoapi.api.pokemon.Pokemon;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import POGOProtos.Data.PokemonDataOuterClass.PokemonData;
+import POGOProtos.Enums.PokemonFamilyIdOuterClass.PokemonFamilyId;
+import POGOProtos.Enums.PokemonIdOuterClass.PokemonId;
+import POGOProtos.Networking.Responses.EvolvePokemonResponseOuterClass.EvolvePokemonResponse;
+import POGOProtos.Networking.Responses.ReleasePokemonResponseOuterClass.ReleasePokemonResponse;
+import POGOProtos.Networking.Responses.UpgradePokemonResponseOuterClass.UpgradePokemonResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the secondary indexes follow additions, updates and removals.
+ */
+public class PokeBankTest {
+
+	@Test
+	public void indexesFollowUpdates() {
+		PokeBank bank = new PokeBank();
+		bank.addPokemon(null, pokemon(1, PokemonId.PIDGEY, 100, 15, false));
+		bank.addPokemon(null, pokemon(2, PokemonId.PIDGEOTTO, 400, 45, true));
+		bank.addPokemon(null, pokemon(3, PokemonId.RATTATA, 250, 30, false));
+
+		assertEquals(2, bank.getPokemonByFamily(PokemonFamilyId.FAMILY_PIDGEY).size());
+		assertEquals(1, bank.getPokemonByPokemonId(PokemonId.PIDGEY).size());
+		assertIds(bank.getPokemonByCp(200, 500), 3, 2);
+		assertIds(bank.getPokemonByIv(1.0, 1.0), 2);
+		assertIds(bank.getFavoritePokemon(), 2);
+
+		// a power up changes the CP, the pokemon moves in the CP index
+		bank.addPokemon(null, pokemon(1, PokemonId.PIDGEY, 300, 15, false));
+		assertIds(bank.getPokemonByCp(200, 500), 3, 1, 2);
+		assertEquals(3, bank.size());
+
+		bank.removePokemon(bank.getPokemonById(2L));
+		assertTrue(bank.getFavoritePokemon().isEmpty());
+		assertIds(bank.getPokemonByFamily(PokemonFamilyId.FAMILY_PIDGEY), 1);
+		assertIds(bank.getPokemonByCp(0, Integer.MAX_VALUE), 3, 1);
+		assertTrue(bank.getPokemonByIv(0.9, 1.0).isEmpty());
+	}
+
+	@Test
+	public void emptyBulkCompletesAtOnce() {
+		BulkCallback<ReleasePokemonResponse.Result> callback = new BulkCallback<ReleasePokemonResponse.Result>() {
+			@Override
+			public void onResponse(BulkResult<ReleasePokemonResponse.Result> result) {
+				assertEquals(0, result.getTotal());
+				assertTrue(result.getResults().isEmpty());
+			}
+		};
+		new PokeBank().transferPokemon(Collections.<Pokemon>emptyList(), callback);
+		assertEquals(0, callback.block().getResult().getTotal());
+	}
+
+	@Test
+	public void bulkResultsUpdateTheBank() {
+		PokeBank bank = new PokeBank();
+		bank.addPokemon(null, pokemon(1, PokemonId.PIDGEY, 100, 15, false));
+		bank.addPokemon(null, pokemon(2, PokemonId.PIDGEY, 120, 15, false));
+		bank.addPokemon(null, pokemon(3, PokemonId.RATTATA, 150, 30, false));
+
+		bank.transferOperation().exec(bank.getPokemonById(1L), ReleasePokemonResponse.newBuilder()
+				.setResult(ReleasePokemonResponse.Result.SUCCESS).build());
+		assertNull(bank.getPokemonById(1L));
+
+		bank.transferOperation().exec(bank.getPokemonById(3L), ReleasePokemonResponse.newBuilder()
+				.setResult(ReleasePokemonResponse.Result.FAILED).build());
+		assertEquals(2, bank.size());
+
+		bank.evolveOperation().exec(bank.getPokemonById(2L), EvolvePokemonResponse.newBuilder()
+				.setResult(EvolvePokemonResponse.Result.SUCCESS)
+				.setEvolvedPokemonData(pokemon(4, PokemonId.PIDGEOTTO, 300, 15, false)).build());
+		assertNull(bank.getPokemonById(2L));
+		assertIds(bank.getPokemonByPokemonId(PokemonId.PIDGEOTTO), 4);
+
+		bank.powerUpOperation().exec(bank.getPokemonById(3L), UpgradePokemonResponse.newBuilder()
+				.setResult(UpgradePokemonResponse.Result.SUCCESS)
+				.setUpgradedPokemon(pokemon(3, PokemonId.RATTATA, 400, 30, false)).build());
+		assertIds(bank.getPokemonByCp(350, 450), 3);
+	}
+
+	private static void assertIds(List<Pokemon> pokemon, long... ids) {
+		assertEquals(ids.length, pokemon.size());
+		for (int i = 0; i < ids.length; i++) {
+			assertEquals(ids[i], pokemon.get(i).getId());
+		}
+	}
+
+	private static PokemonData pokemon(long id, PokemonId species, int cp, int ivSum, boolean favorite) {
+		return PokemonData.newBuilder()
+				.setId(id)
+				.setPokemonId(species)
+				.setCp(cp)
+				.setIndividualAttack(Math.min(15, ivSum))
+				.setIndividualDefense(Math.min(15, Math.max(0, ivSum - 15)))
+				.setIndividualStamina(Math.max(0, ivSum - 30))
+				.setFavorite(favorite ? 1 : 0)
+				.build();
+	}
+}
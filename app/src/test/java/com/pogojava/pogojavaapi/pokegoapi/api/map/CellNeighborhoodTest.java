@@ -0,0 +1,102 @@
+package com.pogojava.pogojavaapi.pokegoapi.api.map;
+
+import com.pogojava.pogojavaapi.pokegoapi.geometry.MutableInteger;
+import com.pogojava.pogojavaapi.pokegoapi.geometry.S2CellId;
+import com.pogojava.pogojavaapi.pokegoapi.geometry.S2LatLng;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the primitive neighborhood against the S2CellId object based computation.
+ */
+public class CellNeighborhoodTest {
+
+	@Test
+	public void primitiveIdsMatchObjects() {
+		Random random = new Random(42);
+		for (int n = 0; n < 1000; n++) {
+			double lat = random.nextDouble() * 180 - 90;
+			double lng = random.nextDouble() * 360 - 180;
+			S2CellId cellId = S2CellId.fromLatLng(S2LatLng.fromDegrees(lat, lng));
+			assertEquals(cellId.id(), S2CellId.idFromDegrees(lat, lng));
+
+			MutableInteger i = new MutableInteger(0);
+			MutableInteger j = new MutableInteger(0);
+			int face = cellId.parent(15).toFaceIJOrientation(i, j, null);
+			int[] ij = new int[2];
+			assertEquals(face, S2CellId.toFaceIJ(cellId.parent(15).id(), ij));
+			assertEquals(i.intValue(), ij[0]);
+			assertEquals(j.intValue(), ij[1]);
+			assertEquals(cellId.parent(15).id(), S2CellId.parentId(cellId.id(), 15));
+		}
+	}
+
+	@Test
+	public void matchesObjectGridInsideFace() {
+		double lat = 45.4642;
+		double lng = 9.19;
+		CellNeighborhood neighborhood = new CellNeighborhood();
+		int count = neighborhood.compute(lat, lng, 5, 25);
+		assertEquals(25, count);
+
+		S2CellId center = S2CellId.fromLatLng(S2LatLng.fromDegrees(lat, lng)).parent(15);
+		assertEquals(center.id(), neighborhood.get(0));
+
+		MutableInteger i = new MutableInteger(0);
+		MutableInteger j = new MutableInteger(0);
+		int face = center.toFaceIJOrientation(i, j, null);
+		int size = 1 << (S2CellId.MAX_LEVEL - 15);
+		Set<Long> expected = new HashSet<>();
+		for (int x = -2; x <= 2; x++) {
+			for (int y = -2; y <= 2; y++) {
+				expected.add(S2CellId.fromFaceIJ(face, i.intValue() + x * size, j.intValue() + y * size)
+						.parent(15).id());
+			}
+		}
+		assertEquals(expected, toSet(neighborhood));
+	}
+
+	@Test
+	public void wrapsAroundCubeCorner() {
+		// the corner shared by faces 0, 1 and 2
+		double lat = Math.toDegrees(Math.asin(1 / Math.sqrt(3)));
+		CellNeighborhood neighborhood = new CellNeighborhood();
+		int count = neighborhood.compute(lat, 45, 5, 25);
+
+		Set<Long> cells = toSet(neighborhood);
+		assertEquals(count, cells.size());
+		for (long cellId : cells) {
+			S2CellId cell = new S2CellId(cellId);
+			assertTrue(cell.isValid());
+			assertEquals(15, cell.level());
+		}
+		assertTrue(count > 9);
+	}
+
+	@Test
+	public void limitKeepsClosestCells() {
+		CellNeighborhood neighborhood = new CellNeighborhood();
+		neighborhood.compute(45.4642, 9.19, 5, 25);
+		long[] all = neighborhood.toArray();
+
+		assertEquals(20, neighborhood.compute(45.4642, 9.19, 5, 20));
+		for (int i = 0; i < 9; i++) {
+			assertEquals(all[i], neighborhood.get(i));
+		}
+	}
+
+	private static Set<Long> toSet(CellNeighborhood neighborhood) {
+		Set<Long> cells = new HashSet<>();
+		for (int i = 0; i < neighborhood.size(); i++) {
+			cells.add(neighborhood.get(i));
+		}
+		return cells;
+	}
+}
@@ -0,0 +1,89 @@
+package com.pogojava.pogojavaapi.pokegoapi.api.map;
+
+import com.pogojava.pogojavaapi.pokegoapi.util.Time;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import POGOProtos.Map.MapCellOuterClass.MapCell;
+import POGOProtos.Map.Pokemon.MapPokemonOuterClass.MapPokemon;
+import POGOProtos.Map.Pokemon.WildPokemonOuterClass.WildPokemon;
+import POGOProtos.Networking.Responses.GetMapObjectsResponseOuterClass.GetMapObjectsResponse;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks caught, fled and deleted pokemon leave the cached cells.
+ */
+public class MapCellStoreTest {
+	private static final long CELL = 0x4000000000000000L;
+	private static final long NOW = 1000000;
+
+	private final MapCellStore store = new MapCellStore(null, new Time() {
+		@Override
+		public long currentTimeMillis() {
+			return NOW;
+		}
+	});
+
+	@Test
+	public void removedPokemonIsNotReturned() {
+		store.update(response(MapCell.newBuilder().setS2CellId(CELL).setCurrentTimestampMs(NOW)
+				.addCatchablePokemons(catchable(1))
+				.addCatchablePokemons(catchable(2))
+				.addWildPokemons(WildPokemon.newBuilder().setEncounterId(2).setLastModifiedTimestampMs(NOW))));
+
+		store.remove(2);
+
+		assertEquals(ids(1), catchableIds());
+		assertEquals(0, read().getWildPokemons().size());
+	}
+
+	@Test
+	public void deletedObjectsRemovePokemon() {
+		long unsigned = 0x8000000000000001L;
+		store.update(response(MapCell.newBuilder().setS2CellId(CELL).setCurrentTimestampMs(NOW)
+				.addCatchablePokemons(catchable(1))
+				.addCatchablePokemons(catchable(2))
+				.addCatchablePokemons(catchable(unsigned))));
+
+		store.update(response(MapCell.newBuilder().setS2CellId(CELL).setCurrentTimestampMs(NOW + 10)
+				.addDeletedObjects("2")
+				.addDeletedObjects("9223372036854775809")
+				.addDeletedObjects("fort.16")));
+
+		assertEquals(ids(1), catchableIds());
+	}
+
+	private static MapPokemon catchable(long encounterId) {
+		return MapPokemon.newBuilder().setEncounterId(encounterId).setExpirationTimestampMs(NOW + 60000).build();
+	}
+
+	private static GetMapObjectsResponse response(MapCell.Builder cell) {
+		return GetMapObjectsResponse.newBuilder().addMapCells(cell).build();
+	}
+
+	private MapObjects read() {
+		MapObjects objects = new MapObjects(null);
+		store.fill(new long[]{CELL}, objects);
+		return objects;
+	}
+
+	private Set<Long> catchableIds() {
+		Set<Long> ids = new HashSet<>();
+		for (MapPokemon pokemon : read().getCatchablePokemons()) {
+			ids.add(pokemon.getEncounterId());
+		}
+		return ids;
+	}
+
+	private static Set<Long> ids(long... ids) {
+		Set<Long> set = new HashSet<>();
+		for (long id : ids) {
+			set.add(id);
+		}
+		return set;
+	}
+}
@@ -0,0 +1,97 @@
+package com.pogojava.pogojavaapi.pokegoapi.auth;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import POGOProtos.Networking.Envelopes.RequestEnvelopeOuterClass.RequestEnvelope.AuthInfo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks token renewals are single flight and do not block while the token is still accepted.
+ */
+public class CredentialProviderTest {
+
+	@Test
+	public void concurrentRenewalsShareOneLogin() throws Exception {
+		final BlockingProvider provider = new BlockingProvider();
+		provider.renewInBackground();
+		assertTrue(provider.started.await(5, TimeUnit.SECONDS));
+
+		final CountDownLatch waited = new CountDownLatch(1);
+		Thread caller = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					provider.renewNow();
+					waited.countDown();
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		caller.start();
+		provider.renewInBackground();
+		assertFalse(waited.await(100, TimeUnit.MILLISECONDS));
+
+		provider.release.countDown();
+		assertTrue(waited.await(5, TimeUnit.SECONDS));
+		assertEquals(1, provider.renewals.get());
+		assertFalse(provider.isRenewing());
+	}
+
+	@Test
+	public void tokenInGracePeriodIsRenewedInBackground() throws Exception {
+		BlockingProvider provider = new BlockingProvider();
+		provider.ensureToken(1000, 500, 1000);
+		assertTrue(provider.started.await(5, TimeUnit.SECONDS));
+		assertTrue(provider.isRenewing());
+
+		provider.release.countDown();
+		for (int i = 0; i < 500 && provider.isRenewing(); i++) {
+			Thread.sleep(10);
+		}
+		assertFalse(provider.isRenewing());
+		assertEquals(1, provider.renewals.get());
+
+		provider.ensureToken(1000, 2000, 1000);
+		assertFalse(provider.isRenewing());
+	}
+
+	private static class BlockingProvider extends CredentialProvider {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger renewals = new AtomicInteger();
+
+		@Override
+		protected void renewToken() {
+			renewals.incrementAndGet();
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public String getTokenId() {
+			return "token";
+		}
+
+		@Override
+		public AuthInfo getAuthInfo() {
+			return AuthInfo.getDefaultInstance();
+		}
+
+		@Override
+		public boolean isTokenIdExpired() {
+			return false;
+		}
+	}
+}
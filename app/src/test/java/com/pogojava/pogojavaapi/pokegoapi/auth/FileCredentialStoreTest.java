@@ -0,0 +1,38 @@
+package com.pogojava.pogojavaapi.pokegoapi.auth;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks stored tokens survive a new store instance on the same directory.
+ */
+public class FileCredentialStoreTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void tokenSurvivesRestart() throws Exception {
+		File directory = new File(folder.getRoot(), "credentials");
+		new FileCredentialStore(directory).save("ptc:ash/ketchum",
+				new StoredToken("token", null, 1234L).toByteArray());
+		new FileCredentialStore(directory).save("ptc:misty",
+				new StoredToken("other", "refresh", 5678L).toByteArray());
+
+		FileCredentialStore store = new FileCredentialStore(directory);
+		StoredToken token = StoredToken.parseFrom(store.load("ptc:ash/ketchum"));
+		assertEquals("token", token.getTokenId());
+		assertNull(token.getRefreshToken());
+		assertEquals(1234L, token.getExpiresTimestamp());
+		assertEquals("refresh", StoredToken.parseFrom(store.load("ptc:misty")).getRefreshToken());
+
+		store.remove("ptc:ash/ketchum");
+		assertNull(store.load("ptc:ash/ketchum"));
+		assertNull(store.load("unknown"));
+	}
+}
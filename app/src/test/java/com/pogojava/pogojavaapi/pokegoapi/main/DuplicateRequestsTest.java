@@ -0,0 +1,82 @@
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks identical requests share the response of the first one, and that a cancelled request is only
+ * dropped once nobody waits for its response.
+ */
+public class DuplicateRequestsTest {
+
+	private static class Call {
+		private boolean cancelled;
+	}
+
+	private static DuplicateRequests<String, Call> duplicates() {
+		return new DuplicateRequests<String, Call>() {
+			@Override
+			boolean isCancelled(Call request) {
+				return request.cancelled;
+			}
+		};
+	}
+
+	@Test
+	public void identicalRequestsShareTheFirstResponse() {
+		DuplicateRequests<String, Call> duplicates = duplicates();
+		Call first = new Call();
+		Call second = new Call();
+		Call third = new Call();
+		Call other = new Call();
+
+		assertFalse(duplicates.join("map", first));
+		assertTrue(duplicates.join("map", second));
+		assertTrue(duplicates.join("map", third));
+		assertFalse(duplicates.join("inventory", other));
+		assertEquals(2, duplicates.getDeduplicatedCount());
+
+		assertEquals(Arrays.asList(second, third), duplicates.take("map"));
+		assertEquals(Collections.<Call>emptyList(), duplicates.take("inventory"));
+
+		// answered, the next identical request is sent again
+		assertFalse(duplicates.join("map", new Call()));
+		assertEquals(2, duplicates.getDeduplicatedCount());
+	}
+
+	@Test
+	public void cancelledRequestIsSentWhileADuplicateWaits() {
+		DuplicateRequests<String, Call> duplicates = duplicates();
+		Call first = new Call();
+		Call second = new Call();
+		duplicates.join("map", first);
+		duplicates.join("map", second);
+
+		first.cancelled = true;
+		assertFalse(duplicates.dropIfAbandoned("map"));
+		assertEquals(Collections.singletonList(second), duplicates.take("map"));
+	}
+
+	@Test
+	public void abandonedRequestIsDropped() {
+		DuplicateRequests<String, Call> duplicates = duplicates();
+		Call first = new Call();
+		Call second = new Call();
+		duplicates.join("map", first);
+		duplicates.join("map", second);
+
+		first.cancelled = true;
+		second.cancelled = true;
+		assertTrue(duplicates.dropIfAbandoned("map"));
+		assertEquals(Collections.<Call>emptyList(), duplicates.take("map"));
+
+		// dropped, the next identical request is sent again
+		assertFalse(duplicates.join("map", new Call()));
+	}
+}
@@ -0,0 +1,60 @@
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import com.google.protobuf.ByteString;
+
+import org.junit.Test;
+
+import POGOProtos.Networking.Envelopes.AuthTicketOuterClass.AuthTicket;
+import POGOProtos.Networking.Envelopes.ResponseEnvelopeOuterClass.ResponseEnvelope;
+import POGOProtos.Networking.Envelopes.ResponseEnvelopeOuterClass.ResponseEnvelope.PlatformResponse;
+import POGOProtos.Networking.Platform.PlatformRequestTypeOuterClass.PlatformRequestType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the lazy envelope reads the same fields as the generated parser.
+ */
+public class LazyResponseEnvelopeTest {
+
+	@Test
+	public void readsSameFieldsAsGeneratedParser() throws Exception {
+		ResponseEnvelope envelope = ResponseEnvelope.newBuilder()
+				.setStatusCode(ResponseEnvelope.StatusCode.OK_RPC_URL_IN_RESPONSE)
+				.setRequestId(1234567890123L)
+				.setApiUrl("pgorelease.nianticlabs.com/plfe/123")
+				.setAuthTicket(AuthTicket.newBuilder()
+						.setStart(ByteString.copyFromUtf8("start"))
+						.setEnd(ByteString.copyFromUtf8("end"))
+						.setExpireTimestampMs(42))
+				.addPlatformReturns(PlatformResponse.newBuilder()
+						.setType(PlatformRequestType.SEND_ENCRYPTED_SIGNATURE)
+						.setResponse(ByteString.copyFromUtf8("signature")))
+				.addReturns(ByteString.copyFromUtf8("first"))
+				.addReturns(ByteString.EMPTY)
+				.addReturns(ByteString.copyFromUtf8("third"))
+				.setError("none")
+				.build();
+
+		LazyResponseEnvelope lazy = LazyResponseEnvelope.parseFrom(envelope.toByteArray());
+
+		assertEquals(envelope.getStatusCode(), lazy.getStatusCode());
+		assertEquals(envelope.getRequestId(), lazy.getRequestId());
+		assertEquals(envelope.getApiUrl(), lazy.getApiUrl());
+		assertTrue(lazy.hasAuthTicket());
+		assertEquals(envelope.getAuthTicket(), lazy.getAuthTicket());
+		assertEquals(envelope.getReturnsList(), lazy.getReturnsList());
+		assertEquals(envelope.getError(), lazy.getError());
+	}
+
+	@Test
+	public void emptyEnvelopeHasDefaults() throws Exception {
+		LazyResponseEnvelope lazy = LazyResponseEnvelope.parseFrom(new byte[0]);
+
+		assertEquals(ResponseEnvelope.StatusCode.UNKNOWN, lazy.getStatusCode());
+		assertEquals("", lazy.getApiUrl());
+		assertFalse(lazy.hasAuthTicket());
+		assertEquals(0, lazy.getReturnsCount());
+	}
+}
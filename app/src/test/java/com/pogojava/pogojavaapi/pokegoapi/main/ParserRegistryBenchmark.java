@@ -0,0 +1,98 @@
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.GeneratedMessage;
+import com.pogojava.pogojavaapi.pokegoapi.util.PokeAFunc;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+
+import POGOProtos.Map.Fort.FortDataOuterClass.FortData;
+import POGOProtos.Map.MapCellOuterClass.MapCell;
+import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
+import POGOProtos.Networking.Responses.GetMapObjectsResponseOuterClass.GetMapObjectsResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares the cost of the parser registry with the reflective parsing path it replaced. Skipped unless the
+ * benchmark system property is set, e.g. with ./gradlew test -Pbenchmark.
+ */
+public class ParserRegistryBenchmark {
+	private static final int WARMUP = 10000;
+	private static final int ITERATIONS = 50000;
+
+	@Test
+	public void registryAgainstReflection() throws Throwable {
+		assumeTrue(Boolean.getBoolean("benchmark"));
+
+		ByteString data = buildMapObjects();
+		MapFunc func = new MapFunc();
+		assertEquals(reflectiveExec(func, data),
+				func.exec(ParserRegistry.<GetMapObjectsResponse>parse(RequestType.GET_MAP_OBJECTS, data)));
+
+		for (int i = 0; i < WARMUP; i++) {
+			func.exec(ParserRegistry.<GetMapObjectsResponse>parse(RequestType.GET_MAP_OBJECTS, data));
+			reflectiveExec(func, data);
+		}
+
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			reflectiveExec(func, data);
+		}
+		long reflective = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			func.exec(ParserRegistry.<GetMapObjectsResponse>parse(RequestType.GET_MAP_OBJECTS, data));
+		}
+		long registry = System.nanoTime() - start;
+
+		System.out.println(String.format("reflective: %d ns/op, registry: %d ns/op",
+				reflective / ITERATIONS, registry / ITERATIONS));
+	}
+
+	/**
+	 * The parsing path PokeAFunc used before the registry: resolve the generic type and invoke parseFrom
+	 * through reflection on every call.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends GeneratedMessage, K> K reflectiveExec(PokeAFunc<T, K> func, ByteString data)
+			throws Exception {
+		Class<T> klass = (Class<T>)
+				((ParameterizedType) func.getClass().getGenericSuperclass())
+						.getActualTypeArguments()[0];
+
+		Method klassMethod = klass.getMethod("parseFrom", ByteString.class);
+		T response = (T) klassMethod.invoke(null, data);
+
+		return func.exec(response);
+	}
+
+	private static ByteString buildMapObjects() {
+		GetMapObjectsResponse.Builder builder = GetMapObjectsResponse.newBuilder();
+		for (int i = 0; i < 21; i++) {
+			MapCell.Builder cell = MapCell.newBuilder()
+					.setS2CellId(0x4000000000000000L + i)
+					.setCurrentTimestampMs(1000L * i);
+			for (int j = 0; j < 4; j++) {
+				cell.addForts(FortData.newBuilder()
+						.setId("fort-" + i + "-" + j)
+						.setLatitude(45.0 + i * 0.001)
+						.setLongitude(9.0 + j * 0.001));
+			}
+			builder.addMapCells(cell);
+		}
+		return builder.build().toByteString();
+	}
+
+	private static class MapFunc extends PokeAFunc<GetMapObjectsResponse, GetMapObjectsResponse> {
+		@Override
+		public GetMapObjectsResponse exec(GetMapObjectsResponse response) {
+			return response;
+		}
+	}
+}
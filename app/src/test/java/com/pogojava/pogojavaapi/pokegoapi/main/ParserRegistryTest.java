@@ -0,0 +1,61 @@
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import com.google.protobuf.ByteString;
+import com.pogojava.pogojavaapi.pokegoapi.util.PokeAFunc;
+
+import org.junit.Test;
+
+import POGOProtos.Map.Fort.FortDataOuterClass.FortData;
+import POGOProtos.Map.MapCellOuterClass.MapCell;
+import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
+import POGOProtos.Networking.Responses.GetMapObjectsResponseOuterClass.GetMapObjectsResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Checks the parser registry parses responses like the generated parsers do.
+ */
+public class ParserRegistryTest {
+
+	@Test
+	public void registryParsesCommonResponses() throws Exception {
+		ByteString data = buildMapObjects();
+		GetMapObjectsResponse response = ParserRegistry.parse(RequestType.GET_MAP_OBJECTS, data);
+		assertEquals(GetMapObjectsResponse.parseFrom(data), response);
+
+		assertNotNull(ParserRegistry.get(RequestType.GET_INVENTORY));
+		assertNotNull(ParserRegistry.get(RequestType.CHECK_CHALLENGE));
+		assertNotNull(ParserRegistry.get(RequestType.DOWNLOAD_SETTINGS));
+	}
+
+	@Test
+	public void pokeAFuncUsesSameParser() throws Throwable {
+		ByteString data = buildMapObjects();
+		assertEquals(GetMapObjectsResponse.parseFrom(data), new MapFunc().exec(data));
+	}
+
+	private static ByteString buildMapObjects() {
+		GetMapObjectsResponse.Builder builder = GetMapObjectsResponse.newBuilder();
+		for (int i = 0; i < 21; i++) {
+			MapCell.Builder cell = MapCell.newBuilder()
+					.setS2CellId(0x4000000000000000L + i)
+					.setCurrentTimestampMs(1000L * i);
+			for (int j = 0; j < 4; j++) {
+				cell.addForts(FortData.newBuilder()
+						.setId("fort-" + i + "-" + j)
+						.setLatitude(45.0 + i * 0.001)
+						.setLongitude(9.0 + j * 0.001));
+			}
+			builder.addMapCells(cell);
+		}
+		return builder.build().toByteString();
+	}
+
+	private static class MapFunc extends PokeAFunc<GetMapObjectsResponse, GetMapObjectsResponse> {
+		@Override
+		public GetMapObjectsResponse exec(GetMapObjectsResponse response) {
+			return response;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks the lanes are taken by priority, in order within a lane, and that a starved lane gets its turn.
+ */
+public class RequestQueueTest {
+
+	@Test
+	public void takesHigherLanesFirst() throws Exception {
+		RequestQueue<String> queue = new RequestQueue<>();
+		queue.offer("bulk-1", RequestPriority.BULK);
+		queue.offer("background", RequestPriority.BACKGROUND);
+		queue.offer("bulk-2", RequestPriority.BULK);
+		queue.offer("interactive", RequestPriority.INTERACTIVE);
+
+		assertEquals(4, queue.size());
+		assertEquals(2, queue.size(RequestPriority.BULK));
+		assertEquals("interactive", queue.take());
+		assertEquals("background", queue.take());
+		assertEquals("bulk-1", queue.take());
+		assertEquals("bulk-2", queue.poll());
+		assertNull(queue.poll());
+		assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void starvedLaneIsTakenFirst() throws Exception {
+		RequestQueue<String> queue = new RequestQueue<>();
+		queue.setStarvationThreshold(0);
+		queue.offer("bulk", RequestPriority.BULK);
+		Thread.sleep(5);
+		queue.offer("background", RequestPriority.BACKGROUND);
+		queue.offer("interactive", RequestPriority.INTERACTIVE);
+
+		// with no threshold the oldest head of the lower lanes goes first
+		assertEquals("bulk", queue.take());
+		assertEquals("background", queue.take());
+		assertEquals("interactive", queue.take());
+	}
+
+	@Test
+	public void waitsForAnOffer() throws Exception {
+		final RequestQueue<String> queue = new RequestQueue<>();
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				queue.offer("late", RequestPriority.BACKGROUND);
+			}
+		}).start();
+		assertEquals("late", queue.poll(5, TimeUnit.SECONDS));
+	}
+}
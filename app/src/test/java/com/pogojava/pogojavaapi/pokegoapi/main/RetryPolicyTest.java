@@ -0,0 +1,66 @@
+package com.pogojava.pogojavaapi.pokegoapi.main;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the backoff delays stay within their bounds, and that only read-only envelopes are retried and
+ * redirects are capped.
+ */
+public class RetryPolicyTest {
+
+	@Test
+	public void backoffDoublesUpToTheMaximum() {
+		ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy(5, 100, 300);
+		for (int i = 0; i < 50; i++) {
+			assertBetween(50, 100, policy.getRetryDelay(1));
+			assertBetween(100, 200, policy.getRetryDelay(2));
+			assertBetween(150, 300, policy.getRetryDelay(3));
+			assertBetween(150, 300, policy.getRetryDelay(5));
+		}
+	}
+
+	@Test
+	public void backoffGivesUpAfterTheMaximumRetries() {
+		ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy();
+		assertTrue(policy.getRetryDelay(ExponentialBackoffRetryPolicy.DEFAULT_MAX_RETRIES) >= 0);
+		assertEquals(-1, policy.getRetryDelay(ExponentialBackoffRetryPolicy.DEFAULT_MAX_RETRIES + 1));
+		assertEquals(-1, new ExponentialBackoffRetryPolicy(0, 100, 100).getRetryDelay(1));
+	}
+
+	@Test
+	public void onlyReadOnlyEnvelopesAreRetried() {
+		RetryPolicy policy = new RetryPolicy() {
+			@Override
+			public long getRetryDelay(int attempt) {
+				return attempt * 10;
+			}
+		};
+		assertEquals(20, RequestHandler.getRetryDelay(policy,
+				Arrays.asList(RequestType.GET_MAP_OBJECTS, RequestType.GET_INVENTORY), 2));
+		assertEquals(-1, RequestHandler.getRetryDelay(policy,
+				Arrays.asList(RequestType.GET_MAP_OBJECTS, RequestType.CATCH_POKEMON), 1));
+		assertEquals(-1, RequestHandler.getRetryDelay(policy,
+				Collections.singletonList(RequestType.ENCOUNTER), 1));
+	}
+
+	@Test
+	public void redirectsAreCapped() {
+		for (int redirects = 1; redirects <= RequestHandler.MAX_REDIRECTS; redirects++) {
+			assertTrue(RequestHandler.isRedirectAllowed(redirects));
+		}
+		assertFalse(RequestHandler.isRedirectAllowed(RequestHandler.MAX_REDIRECTS + 1));
+	}
+
+	private static void assertBetween(long min, long max, long value) {
+		assertTrue(value + " not in [" + min + ", " + max + "]", value >= min && value <= max);
+	}
+}
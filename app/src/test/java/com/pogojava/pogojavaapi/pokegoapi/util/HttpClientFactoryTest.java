@@ -0,0 +1,38 @@
+package com.pogojava.pogojavaapi.pokegoapi.util;
+
+import org.junit.Test;
+
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks derived clients share the pool and dispatcher and keep their own settings.
+ */
+public class HttpClientFactoryTest {
+
+	@Test
+	public void derivedClientsShareConnections() {
+		HttpClientFactory factory = new HttpClientFactory();
+		OkHttpClient api = factory.share(new OkHttpClient());
+		OkHttpClient auth = factory.share(new OkHttpClient.Builder().followRedirects(false).build());
+
+		assertSame(factory.getConnectionPool(), api.connectionPool());
+		assertSame(factory.getConnectionPool(), auth.connectionPool());
+		assertSame(factory.getDispatcher(), auth.dispatcher());
+		assertFalse(auth.followRedirects());
+	}
+
+	@Test
+	public void sharingTwiceAddsNothing() {
+		HttpClientFactory factory = new HttpClientFactory();
+		OkHttpClient shared = factory.share(new OkHttpClient());
+
+		assertSame(shared, factory.share(shared));
+		assertSame(factory.getClient(), factory.share(null));
+		OkHttpClient derived = factory.share(shared.newBuilder().followRedirects(false).build());
+		assertEquals(shared.networkInterceptors().size(), derived.networkInterceptors().size());
+	}
+}
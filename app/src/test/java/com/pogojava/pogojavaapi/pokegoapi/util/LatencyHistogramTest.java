@@ -0,0 +1,43 @@
+package com.pogojava.pogojavaapi.pokegoapi.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the percentiles of the histogram stay within its bucket precision.
+ */
+public class LatencyHistogramTest {
+
+	@Test
+	public void percentilesWithinPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 100000; value++) {
+			histogram.record(value);
+		}
+
+		assertEquals(100000, histogram.getCount());
+		assertEquals(100000, histogram.getMax());
+		assertEquals(50000.5, histogram.getMean(), 0.001);
+		assertWithin(50000, histogram.getValueAtPercentile(50));
+		assertWithin(99000, histogram.getValueAtPercentile(99));
+		assertEquals(100000, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void smallValuesAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(3);
+		histogram.record(7);
+		histogram.recordNanos(12000);
+
+		assertEquals(3, histogram.getValueAtPercentile(1));
+		assertEquals(7, histogram.getValueAtPercentile(50));
+		assertEquals(12, histogram.getValueAtPercentile(100));
+	}
+
+	private static void assertWithin(long expected, long actual) {
+		assertTrue(expected + " ~ " + actual, Math.abs(actual - expected) <= expected / 16);
+	}
+}
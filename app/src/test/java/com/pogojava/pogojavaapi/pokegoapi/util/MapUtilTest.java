@@ -0,0 +1,34 @@
+package com.pogojava.pogojavaapi.pokegoapi.util;
+
+import com.pogojava.pogojavaapi.pokegoapi.api.map.Point;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks items are sorted by distance without dropping the ones at the same distance.
+ */
+public class MapUtilTest {
+
+	@Test
+	public void sortKeepsEquidistantItems() {
+		Point far = new Point(45.01, 9.0);
+		Point spawn = new Point(45.001, 9.0);
+		Point sameSpawn = new Point(45.001, 9.0);
+		Point player = new Point(45.0, 9.0);
+
+		List<Point> sorted = new MapUtil<Point>().sortItems(Arrays.asList(far, spawn, player, sameSpawn),
+				45.0, 9.0);
+
+		assertEquals(4, sorted.size());
+		assertSame(player, sorted.get(0));
+		assertSame(spawn, sorted.get(1));
+		assertSame(sameSpawn, sorted.get(2));
+		assertSame(far, sorted.get(3));
+	}
+}
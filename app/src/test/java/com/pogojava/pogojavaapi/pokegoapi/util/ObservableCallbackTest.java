@@ -0,0 +1,88 @@
+package com.pogojava.pogojavaapi.pokegoapi.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+import rx.Subscription;
+import rx.functions.Action1;
+import rx.observers.TestSubscriber;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the observable view of a callback.
+ */
+public class ObservableCallbackTest {
+
+	@Test
+	public void emitsResultToEarlyAndLateSubscribers() {
+		ObservableCallback<String> callback = new ObservableCallback<>();
+		TestSubscriber<String> early = new TestSubscriber<>();
+		callback.toObservable().subscribe(early);
+
+		callback.fire("result");
+
+		TestSubscriber<String> late = new TestSubscriber<>();
+		callback.toObservable().subscribe(late);
+		early.assertValue("result");
+		early.assertCompleted();
+		late.assertValue("result");
+		assertFalse(callback.isCancelled());
+	}
+
+	@Test
+	public void emitsError() {
+		ObservableCallback<String> callback = new ObservableCallback<>();
+		TestSubscriber<String> subscriber = new TestSubscriber<>();
+		callback.toObservable().subscribe(subscriber);
+
+		IllegalStateException error = new IllegalStateException();
+		callback.fire(error);
+
+		subscriber.assertError(error);
+	}
+
+	@Test
+	public void unsubscribingCancels() {
+		ObservableCallback<String> callback = new ObservableCallback<>();
+		Subscription subscription = callback.toObservable().subscribe(new Action1<String>() {
+			@Override
+			public void call(String result) {
+			}
+		});
+
+		subscription.unsubscribe();
+
+		assertTrue(callback.isCancelled());
+		long start = System.nanoTime();
+		callback.block(5, TimeUnit.SECONDS);
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+	}
+
+	@Test
+	public void subscribingAfterCancellationFails() {
+		ObservableCallback<String> callback = new ObservableCallback<>();
+		callback.toObservable().subscribe(new TestSubscriber<String>()).unsubscribe();
+
+		TestSubscriber<String> late = new TestSubscriber<>();
+		callback.toObservable().subscribe(late);
+		callback.fire("result");
+
+		late.assertError(CancellationException.class);
+		late.assertNoValues();
+	}
+
+	@Test
+	public void cancellingFailsTheSubscribers() {
+		ObservableCallback<String> callback = new ObservableCallback<>();
+		TestSubscriber<String> subscriber = new TestSubscriber<>();
+		callback.toObservable().subscribe(subscriber);
+
+		callback.cancel();
+
+		subscriber.assertError(CancellationException.class);
+	}
+}
@@ -0,0 +1,70 @@
+package com.pogojava.pogojavaapi.pokegoapi.util;
+
+import com.pogojava.pogojavaapi.pokegoapi.api.map.Point;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the spatial index against a brute force scan.
+ */
+public class SpatialIndexTest {
+	private static final double LATITUDE = 45.4642;
+	private static final double LONGITUDE = 9.19;
+
+	@Test
+	public void matchesBruteForce() {
+		Random random = new Random(7);
+		SpatialIndex<Point> index = new SpatialIndex<>();
+		List<Point> points = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			Point point = new Point(LATITUDE + (random.nextDouble() - 0.5) * 0.05,
+					LONGITUDE + (random.nextDouble() - 0.5) * 0.05);
+			points.add(point);
+			index.add(point);
+		}
+
+		List<Point> within = index.withinRadius(LATITUDE, LONGITUDE, 500);
+		int expected = 0;
+		for (Point point : points) {
+			if (distance(point) <= 500) {
+				expected++;
+			}
+		}
+		assertEquals(expected, within.size());
+		for (int i = 1; i < within.size(); i++) {
+			assertEquals(true, distance(within.get(i - 1)) <= distance(within.get(i)));
+		}
+
+		List<Point> nearest = index.nearest(LATITUDE, LONGITUDE, 10);
+		assertEquals(10, nearest.size());
+		double tenth = distance(nearest.get(9));
+		int closer = 0;
+		for (Point point : points) {
+			if (distance(point) < tenth) {
+				closer++;
+			}
+		}
+		assertEquals(9, closer);
+	}
+
+	@Test
+	public void keepsPointsAtSameDistance() {
+		SpatialIndex<Point> index = new SpatialIndex<>();
+		index.add(new Point(LATITUDE + 0.001, LONGITUDE));
+		index.add(new Point(LATITUDE - 0.001, LONGITUDE));
+		index.add(new Point(LATITUDE + 0.001, LONGITUDE));
+
+		assertEquals(3, index.nearest(LATITUDE, LONGITUDE, 5).size());
+		assertEquals(3, index.withinRadius(LATITUDE, LONGITUDE, 200).size());
+	}
+
+	private static double distance(Point point) {
+		return MapUtil.distFrom(LATITUDE, LONGITUDE, point.getLatitude(), point.getLongitude());
+	}
+}